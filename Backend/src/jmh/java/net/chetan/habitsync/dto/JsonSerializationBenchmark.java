@@ -0,0 +1,52 @@
+package net.chetan.habitsync.dto;
+
+import net.chetan.habitsync.dto.HabitDtos.HabitResponse;
+import net.chetan.habitsync.dto.StatsDtos.OverviewStats;
+import net.chetan.habitsync.service.BenchmarkDataset;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Response body serialization with the Jackson 3 mapper the web layer uses.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonSerializationBenchmark {
+
+    private JsonMapper mapper;
+    private List<HabitResponse> habits;
+    private OverviewStats overview;
+
+    @Setup
+    public void setUp(BenchmarkDataset data) {
+        mapper = JsonMapper.builder().build();
+        habits = data.habitService.getHabitsForUser(data.user);
+        overview = data.statsService.getOverview(data.user);
+    }
+
+    @Benchmark
+    public byte[] habitList() {
+        return mapper.writeValueAsBytes(habits);
+    }
+
+    @Benchmark
+    public byte[] overview() {
+        return mapper.writeValueAsBytes(overview);
+    }
+}
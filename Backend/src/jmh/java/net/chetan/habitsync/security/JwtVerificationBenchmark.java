@@ -0,0 +1,63 @@
+package net.chetan.habitsync.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import net.chetan.habitsync.model.User;
+import net.chetan.habitsync.security.JwtService.TokenClaims;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request cost of turning a bearer token into claims, with and without the verified-token
+ * cache in {@link JwtService}, and the cost of issuing a token at login.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class JwtVerificationBenchmark {
+
+    private JwtService jwtService;
+    private User user;
+    private String token;
+
+    @Setup
+    public void setUp() throws ReflectiveOperationException {
+        jwtService = new JwtService(new SimpleMeterRegistry(), "benchmark_secret_key_that_is_long_enough_for_hs256", 86_400_000L, 100_000L);
+        user = new User();
+        Field id = User.class.getDeclaredField("id");
+        id.setAccessible(true);
+        id.set(user, "64f1c0ffee0000000000abcd");
+        user.setEmail("bench@habitsync.net");
+        token = jwtService.generateToken(user);
+    }
+
+    @Benchmark
+    public TokenClaims uncached() {
+        return jwtService.verify(token);
+    }
+
+    @Benchmark
+    public TokenClaims cached() {
+        return jwtService.parse(token);
+    }
+
+    @Benchmark
+    public String generate() {
+        return jwtService.generateToken(user);
+    }
+}
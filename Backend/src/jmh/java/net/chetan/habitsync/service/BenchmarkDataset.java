@@ -0,0 +1,133 @@
+package net.chetan.habitsync.service;
+
+import net.chetan.habitsync.model.Habit;
+import net.chetan.habitsync.model.Habit.Frequency;
+import net.chetan.habitsync.model.HabitRollup;
+import net.chetan.habitsync.model.User;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.lang.reflect.Field;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * One user with {@code habits} habits and up to {@code historyDays} days of completions each,
+ * wired into the real services over in-memory repositories. Histories are generated as runs of
+ * completed days broken by gaps, so streak and rollup math sees realistic shapes, and the seed
+ * is fixed so every fork measures the same data.
+ */
+@State(Scope.Benchmark)
+public class BenchmarkDataset {
+
+    private static final String[] ICONS = {"water", "book", "run", "meditate", "salad", "sleep", "journal", "guitar"};
+
+    @Param({"1", "10", "50"})
+    public int habits;
+
+    @Param({"0", "365", "1095"})
+    public int historyDays;
+
+    public User user;
+    public List<Habit> habitList;
+    public HabitService habitService;
+    public StatsService statsService;
+
+    CompletionStore completionStore;
+
+    @Setup
+    public void setUp() throws ReflectiveOperationException {
+        Random random = new Random(42);
+        LocalDate today = LocalDate.now();
+
+        user = new User();
+        assignId(user, "64f1c0ffee0000000000abcd");
+        user.setEmail("bench@habitsync.net");
+        user.setName("Bench");
+
+        Map<String, Habit> habitRows = new HashMap<>();
+        Map<String, DayBitSet> histories = new HashMap<>();
+        Map<String, HabitRollup> rollupRows = new HashMap<>();
+        habitList = new ArrayList<>();
+        for (int i = 0; i < habits; i++) {
+            Habit habit = new Habit();
+            assignId(habit, String.format("64f1c0ffee00000000%06d", i));
+            habit.setUserId(user.getId());
+            habit.setName("Habit " + i);
+            habit.setIcon(ICONS[i % ICONS.length]);
+            habit.setFrequency(i % 4 == 0 ? Frequency.WEEKLY : Frequency.DAILY);
+            habit.setGoalPerWeek(i % 4 == 0 ? 3 : 7);
+            habit.setReminderTime(LocalTime.of(6 + i % 14, 0));
+            habit.setMotivationalQuote("Small steps every day");
+            habitRows.put(habit.getId(), habit);
+            habitList.add(habit);
+
+            DayBitSet history = history(random, today, historyDays);
+            if (history != null) {
+                histories.put(habit.getId(), history);
+            }
+            rollupRows.put(habit.getId(), HabitRollupService.fromHistory(habit.getId(), history));
+        }
+
+        completionStore = new InMemoryCompletionStore(histories);
+        HabitRollupService rollupService = new HabitRollupService(
+                InMemoryRepositories.rollups(rollupRows), completionStore, null);
+        habitService = new HabitService(InMemoryRepositories.habits(habitRows), completionStore, rollupService, null, null);
+        statsService = new StatsService(InMemoryRepositories.habits(habitRows), completionStore, rollupService,
+                null, false);
+    }
+
+    /**
+     * Alternates completed runs and gaps backwards from today; about two habits in three are
+     * still on a streak.
+     */
+    private static DayBitSet history(Random random, LocalDate today, int days) {
+        if (days == 0) {
+            return null;
+        }
+        LocalDate first = today.minusDays(days - 1);
+        DayBitSet all = new DayBitSet(first, today);
+        LocalDate day = random.nextInt(3) == 0 ? today.minusDays(1 + random.nextInt(5)) : today;
+        while (!day.isBefore(first)) {
+            int run = 1 + random.nextInt(random.nextInt(4) == 0 ? 60 : 12);
+            for (int i = 0; i < run && !day.isBefore(first); i++, day = day.minusDays(1)) {
+                all.set(day);
+            }
+            day = day.minusDays(1 + random.nextInt(4));
+        }
+
+        if (all.count(first, today) == 0) {
+            return null;
+        }
+
+        // the stores only ever hand out histories trimmed to the first and last completion
+        LocalDate lo = first;
+        while (!all.get(lo)) {
+            lo = lo.plusDays(1);
+        }
+        LocalDate hi = today;
+        while (!all.get(hi)) {
+            hi = hi.minusDays(1);
+        }
+        DayBitSet trimmed = new DayBitSet(lo, hi);
+        for (LocalDate d = lo; !d.isAfter(hi); d = d.plusDays(1)) {
+            if (all.get(d)) {
+                trimmed.set(d);
+            }
+        }
+        return trimmed;
+    }
+
+    private static void assignId(Object entity, String id) throws ReflectiveOperationException {
+        Field field = entity.getClass().getDeclaredField("id");
+        field.setAccessible(true);
+        field.set(entity, id);
+    }
+}
@@ -0,0 +1,45 @@
+package net.chetan.habitsync.service;
+
+import net.chetan.habitsync.dto.HabitDtos.HabitResponse;
+import net.chetan.habitsync.model.Habit;
+import net.chetan.habitsync.model.HabitRollup;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The habit list endpoint as served from rollups, and the streak math that rebuilds a rollup
+ * from a habit's full history when one is missing.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HabitServiceBenchmark {
+
+    @Benchmark
+    public List<HabitResponse> habitList(BenchmarkDataset data) {
+        return data.habitService.getHabitsForUser(data.user);
+    }
+
+    @Benchmark
+    public void rebuildRollups(BenchmarkDataset data, Blackhole blackhole) {
+        for (Habit habit : data.habitList) {
+            DayBitSet days = data.completionStore
+                    .loadHistory(habit.getId(), HabitRollupService.historyStart(LocalDate.now()))
+                    .orElse(null);
+            HabitRollup rollup = HabitRollupService.fromHistory(habit.getId(), days);
+            blackhole.consume(rollup);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package net.chetan.habitsync.service;
+
+import net.chetan.habitsync.repository.HabitCompletionRepositoryCustom.CompletionCounts;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Read-only {@link CompletionStore} over pre-built per-habit histories.
+ */
+class InMemoryCompletionStore implements CompletionStore {
+
+    private final Map<String, DayBitSet> histories;
+
+    InMemoryCompletionStore(Map<String, DayBitSet> histories) {
+        this.histories = histories;
+    }
+
+    @Override
+    public boolean markCompleted(String userId, String habitId, LocalDate date) {
+        throw new UnsupportedOperationException("Benchmark completion store is read-only");
+    }
+
+    @Override
+    public Map<String, DayBitSet> load(String userId, Collection<String> habitIds, LocalDate start, LocalDate end) {
+        Map<String, DayBitSet> loaded = new HashMap<>();
+        for (String habitId : habitIds) {
+            DayBitSet days = new DayBitSet(start, end);
+            DayBitSet history = histories.get(habitId);
+            if (history != null) {
+                for (LocalDate d = start; !d.isAfter(end); d = d.plusDays(1)) {
+                    if (history.get(d)) {
+                        days.set(d);
+                    }
+                }
+            }
+            loaded.put(habitId, days);
+        }
+        return loaded;
+    }
+
+    @Override
+    public Map<String, DayBitSet> loadHistories(Collection<String> habitIds, LocalDate since) {
+        Map<String, DayBitSet> loaded = new HashMap<>();
+        habitIds.forEach(id -> loadHistory(id, since).ifPresent(history -> loaded.put(id, history)));
+        return loaded;
+    }
+
+    @Override
+    public Optional<DayBitSet> loadHistory(String habitId, LocalDate since) {
+        DayBitSet history = histories.get(habitId);
+        if (history == null || since == null || !since.isAfter(history.getFrom())) {
+            return Optional.ofNullable(history);
+        }
+        List<LocalDate> days = new ArrayList<>();
+        for (LocalDate d = since; !d.isAfter(history.getTo()); d = d.plusDays(1)) {
+            if (history.get(d)) {
+                days.add(d);
+            }
+        }
+        return DayBitSet.of(days);
+    }
+
+    @Override
+    public Set<Integer> applyAll(String userId, List<CompletionEntry> entries) {
+        throw new UnsupportedOperationException("Benchmark completion store is read-only");
+    }
+
+    /**
+     * Histories carry no write times, so every completed day is returned.
+     */
+    @Override
+    public List<CompletionEntry> changedSince(String userId, Collection<String> habitIds, Instant since) {
+        List<CompletionEntry> entries = new ArrayList<>();
+        for (String habitId : habitIds) {
+            DayBitSet history = histories.get(habitId);
+            if (history != null) {
+                for (LocalDate d = history.getFrom(); !d.isAfter(history.getTo()); d = d.plusDays(1)) {
+                    if (history.get(d)) {
+                        entries.add(new CompletionEntry(habitId, d, true));
+                    }
+                }
+            }
+        }
+        return entries;
+    }
+
+    @Override
+    public Stream<CompletionEntry> streamCompleted(String userId, Collection<String> habitIds) {
+        return changedSince(userId, habitIds, null).stream();
+    }
+
+    @Override
+    public List<CompletionCounts> countCompleted(String userId,
+                                                 Collection<String> habitIds,
+                                                 LocalDate windowStart,
+                                                 LocalDate recentStart,
+                                                 LocalDate end) {
+        List<CompletionCounts> counts = new ArrayList<>();
+        for (String habitId : habitIds) {
+            DayBitSet history = histories.get(habitId);
+            int total = history != null ? history.count(windowStart, end) : 0;
+            if (total > 0) {
+                counts.add(new CompletionCounts(habitId, total, history.count(recentStart, end)));
+            }
+        }
+        return counts;
+    }
+}
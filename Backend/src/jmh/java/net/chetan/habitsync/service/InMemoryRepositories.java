@@ -0,0 +1,78 @@
+package net.chetan.habitsync.service;
+
+import net.chetan.habitsync.model.Habit;
+import net.chetan.habitsync.model.HabitRollup;
+import net.chetan.habitsync.repository.HabitRepository;
+import net.chetan.habitsync.repository.HabitRollupRepository;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Map-backed stand-ins for the Mongo repositories, implementing only the methods the services
+ * call on their read paths. Anything else fails loudly so a benchmark never measures a no-op.
+ */
+final class InMemoryRepositories {
+
+    private InMemoryRepositories() {
+    }
+
+    static HabitRepository habits(Map<String, Habit> rows) {
+        return repository(HabitRepository.class, rows, Habit::getId, Map.of(
+                "findByUserIdAndArchivedFalse", args -> rows.values().stream()
+                        .filter(h -> h.getUserId().equals(args[0]) && !h.isArchived())
+                        .toList()));
+    }
+
+    static HabitRollupRepository rollups(Map<String, HabitRollup> rows) {
+        return repository(HabitRollupRepository.class, rows, HabitRollup::getHabitId, Map.of());
+    }
+
+    private static <T, R> R repository(Class<R> type,
+                                       Map<String, T> rows,
+                                       Function<T, String> idOf,
+                                       Map<String, Function<Object[], Object>> queries) {
+        Object proxy = Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (self, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                return switch (method.getName()) {
+                    case "equals" -> self == args[0];
+                    case "hashCode" -> System.identityHashCode(self);
+                    default -> "InMemory" + type.getSimpleName();
+                };
+            }
+            Function<Object[], Object> query = queries.get(method.getName());
+            if (query != null) {
+                return query.apply(args);
+            }
+            switch (method.getName()) {
+                case "findById":
+                    return Optional.ofNullable(rows.get((String) args[0]));
+                case "findAllById": {
+                    List<T> found = new ArrayList<>();
+                    for (Object id : (Iterable<?>) args[0]) {
+                        T row = rows.get((String) id);
+                        if (row != null) {
+                            found.add(row);
+                        }
+                    }
+                    return found;
+                }
+                case "save": {
+                    @SuppressWarnings("unchecked")
+                    T entity = (T) args[0];
+                    rows.put(idOf.apply(entity), entity);
+                    return entity;
+                }
+                case "count":
+                    return (long) rows.size();
+                default:
+                    throw new UnsupportedOperationException(type.getSimpleName() + "." + method.getName());
+            }
+        });
+        return type.cast(proxy);
+    }
+}
@@ -0,0 +1,28 @@
+package net.chetan.habitsync.service;
+
+import net.chetan.habitsync.dto.StatsDtos.OverviewStats;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The dashboard overview: the 90-day completion counts, rollup lookup and breakdown assembly.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StatsServiceBenchmark {
+
+    @Benchmark
+    public OverviewStats overview(BenchmarkDataset data) {
+        return data.statsService.getOverview(data.user);
+    }
+}
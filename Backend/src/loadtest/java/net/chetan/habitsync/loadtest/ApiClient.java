@@ -0,0 +1,83 @@
+package net.chetan.habitsync.loadtest;
+
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Thin HTTP client for the habitsync API that records the latency of every call.
+ */
+public class ApiClient {
+
+    private static final JsonMapper JSON = JsonMapper.builder().build();
+
+    private final HttpClient http;
+    private final URI baseUrl;
+    private final LatencyRecorder recorder;
+
+    public ApiClient(HttpClient http, URI baseUrl, LatencyRecorder recorder) {
+        this.http = http;
+        this.baseUrl = baseUrl;
+        this.recorder = recorder;
+    }
+
+    /**
+     * Logs in, registering the account first if it does not exist yet, and returns the token.
+     */
+    public String loginOrRegister(String name, String email, String password) throws IOException, InterruptedException {
+        Map<String, String> credentials = Map.of("email", email, "password", password);
+        HttpResponse<String> login = send("POST /api/auth/login", "POST", "/api/auth/login", null, credentials);
+        if (login.statusCode() != 200) {
+            HttpResponse<String> register = send("POST /api/auth/register", "POST", "/api/auth/register", null,
+                    Map.of("name", name, "email", email, "password", password));
+            if (register.statusCode() != 200) {
+                throw new IOException("Could not register " + email + ": HTTP " + register.statusCode());
+            }
+            return JSON.readTree(register.body()).get("token").asString();
+        }
+        return JSON.readTree(login.body()).get("token").asString();
+    }
+
+    public JsonNode get(String label, String path, String token) throws IOException, InterruptedException {
+        HttpResponse<String> response = send(label, "GET", path, token, null);
+        return response.statusCode() == 200 ? JSON.readTree(response.body()) : null;
+    }
+
+    public JsonNode post(String label, String path, String token, Object body) throws IOException, InterruptedException {
+        HttpResponse<String> response = send(label, "POST", path, token, body);
+        return response.statusCode() == 200 ? JSON.readTree(response.body()) : null;
+    }
+
+    private HttpResponse<String> send(String label, String method, String path, String token, Object body)
+            throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(baseUrl.resolve(path))
+                .timeout(Duration.ofSeconds(30))
+                .header("Accept", "application/json");
+        if (token != null) {
+            request.header("Authorization", "Bearer " + token);
+        }
+        if (body != null) {
+            request.header("Content-Type", "application/json")
+                    .method(method, HttpRequest.BodyPublishers.ofString(JSON.writeValueAsString(body)));
+        } else {
+            request.method(method, HttpRequest.BodyPublishers.noBody());
+        }
+
+        long start = System.nanoTime();
+        try {
+            HttpResponse<String> response = http.send(request.build(), HttpResponse.BodyHandlers.ofString());
+            recorder.record(label, System.nanoTime() - start, response.statusCode() < 400);
+            return response;
+        } catch (IOException e) {
+            recorder.record(label, System.nanoTime() - start, false);
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package net.chetan.habitsync.loadtest;
+
+import com.mongodb.ConnectionString;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import net.chetan.habitsync.model.Habit;
+import net.chetan.habitsync.model.Habit.Frequency;
+import net.chetan.habitsync.model.HabitCompletion;
+import net.chetan.habitsync.model.HabitRollup;
+import net.chetan.habitsync.model.User;
+import net.chetan.habitsync.service.DayBitSet;
+import net.chetan.habitsync.service.HabitRollupService;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.lang.reflect.Field;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Seeds a database with synthetic users, habits, completions and rollups for load testing.
+ * Every user is {@code user<n>@loadtest.habitsync.net} with the same password, so the session
+ * scenario in {@link LoadTest} can log in as any of them. Users are generated from a seed
+ * derived from their index, which makes a run reproducible and lets it be split across
+ * threads or resumed with {@code first-user}.
+ * <p>
+ * Shapes: habits per user are exponential around {@code habits-mean} (capped at 50), a share
+ * of habits is archived, each habit starts somewhere in the last {@code history-days} days and
+ * alternates completed runs and gaps according to a per-habit adherence, and some habits are
+ * abandoned part way. With {@code dry-run=true} nothing is written and only the totals and the
+ * streak distribution are printed, which is useful to size a run before writing it.
+ *
+ * <pre>
+ * mvn -Ploadtest test-compile exec:exec -Dloadtest.main=net.chetan.habitsync.loadtest.DatasetGenerator \
+ *     -Dloadtest.args="mongo-uri=mongodb://localhost:27017/habitsync users=1000000 threads=8"
+ * </pre>
+ */
+public final class DatasetGenerator {
+
+    static final String PASSWORD = "loadtest-password";
+
+    private static final String[] NAMES = {
+            "Drink water", "Read", "Run", "Meditate", "Stretch", "Journal", "No sugar", "Walk 10k steps",
+            "Practice guitar", "Learn Spanish", "Sleep by 11", "Floss", "Cold shower", "Gym", "Call family"
+    };
+    private static final String[] ICONS = {"💧", "📚", "🏃", "🧘", "🤸", "✍️", "🍎", "🚶", "🎸", "🇪🇸", "😴", "🦷", "🚿", "🏋️", "📞"};
+
+    private final int historyDays;
+    private final double habitsMean;
+    private final double archivedRatio;
+    private final long seed;
+    private final LocalDate today = LocalDate.now();
+
+    private final AtomicLong users = new AtomicLong();
+    private final AtomicLong habits = new AtomicLong();
+    private final AtomicLong archived = new AtomicLong();
+    private final AtomicLong completions = new AtomicLong();
+    private final AtomicLongArray streaks = new AtomicLongArray(8);
+
+    DatasetGenerator(int historyDays, double habitsMean, double archivedRatio, long seed) {
+        this.historyDays = historyDays;
+        this.habitsMean = habitsMean;
+        this.archivedRatio = archivedRatio;
+        this.seed = seed;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = LoadTest.parseOptions(args);
+        boolean dryRun = Boolean.parseBoolean(options.getOrDefault("dry-run", "false"));
+        String uri = options.getOrDefault("mongo-uri", "mongodb://localhost:27017/habitsync");
+        int firstUser = Integer.parseInt(options.getOrDefault("first-user", "0"));
+        int userCount = Integer.parseInt(options.getOrDefault("users", "10000"));
+        int threads = Integer.parseInt(options.getOrDefault("threads", "4"));
+        int batchUsers = Integer.parseInt(options.getOrDefault("batch-users", "200"));
+        DatasetGenerator generator = new DatasetGenerator(
+                Integer.parseInt(options.getOrDefault("history-days", "365")),
+                Double.parseDouble(options.getOrDefault("habits-mean", "4")),
+                Double.parseDouble(options.getOrDefault("archived-ratio", "0.1")),
+                Long.parseLong(options.getOrDefault("seed", "42")));
+
+        // one hash for everyone: the server verifies it like any other, and hashing a million
+        // passwords here would take longer than generating everything else
+        String passwordHash = new BCryptPasswordEncoder(10).encode(PASSWORD);
+
+        MongoClient client = dryRun ? null : MongoClients.create(uri);
+        MongoTemplate mongo = dryRun ? null : new MongoTemplate(client, new ConnectionString(uri).getDatabase());
+
+        long start = System.nanoTime();
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int from = firstUser; from < firstUser + userCount; from += batchUsers) {
+            int batchStart = from;
+            int batchEnd = Math.min(from + batchUsers, firstUser + userCount);
+            futures.add(workers.submit(() -> {
+                generator.writeBatch(mongo, batchStart, batchEnd, passwordHash);
+                return null;
+            }));
+        }
+        long done = 0;
+        for (Future<?> f : futures) {
+            f.get();
+            if (++done % 50 == 0) {
+                System.out.printf("%d/%d batches, %d completions so far%n",
+                        done, futures.size(), generator.completions.get());
+            }
+        }
+        workers.shutdown();
+        if (client != null) {
+            client.close();
+        }
+
+        System.out.printf("%s %d users, %d habits (%d archived), %d completions in %.1fs%n",
+                dryRun ? "Generated (dry run)" : "Wrote",
+                generator.users.get(), generator.habits.get(), generator.archived.get(),
+                generator.completions.get(), (System.nanoTime() - start) / 1e9);
+        generator.printStreaks();
+    }
+
+    void writeBatch(MongoTemplate mongo, int from, int to, String passwordHash) throws ReflectiveOperationException {
+        List<User> userRows = new ArrayList<>();
+        List<Habit> habitRows = new ArrayList<>();
+        List<HabitCompletion> completionRows = new ArrayList<>();
+        List<HabitRollup> rollupRows = new ArrayList<>();
+
+        for (int n = from; n < to; n++) {
+            Random random = new Random(seed * 1_000_003L + n);
+            User user = new User();
+            assignId(user, new ObjectId().toHexString());
+            user.setName("Load User " + n);
+            user.setEmail(email(n));
+            user.setPassword(passwordHash);
+            user.setCreatedAt(today.minusDays(historyDays).atStartOfDay().toInstant(ZoneOffset.UTC));
+            userRows.add(user);
+
+            int habitCount = Math.min(50, 1 + (int) (-Math.log(1 - random.nextDouble()) * (habitsMean - 1)));
+            for (int h = 0; h < habitCount; h++) {
+                Habit habit = habit(random, user.getId());
+                habitRows.add(habit);
+
+                DayBitSet history = history(random);
+                if (history != null) {
+                    for (LocalDate d = history.getFrom(); !d.isAfter(history.getTo()); d = d.plusDays(1)) {
+                        if (history.get(d)) {
+                            HabitCompletion completion = new HabitCompletion();
+                            completion.setUserId(user.getId());
+                            completion.setHabitId(habit.getId());
+                            completion.setDate(d);
+                            completionRows.add(completion);
+                        }
+                    }
+                }
+                HabitRollup rollup = HabitRollupService.fromHistory(habit.getId(), history);
+                rollupRows.add(rollup);
+                streaks.incrementAndGet(streakBucket(HabitRollupService.currentStreak(rollup, today)));
+                if (habit.isArchived()) {
+                    archived.incrementAndGet();
+                }
+            }
+        }
+
+        if (mongo != null) {
+            mongo.insert(userRows, User.class);
+            mongo.insert(habitRows, Habit.class);
+            mongo.insert(rollupRows, HabitRollup.class);
+            for (int i = 0; i < completionRows.size(); i += 10_000) {
+                mongo.insert(completionRows.subList(i, Math.min(i + 10_000, completionRows.size())),
+                        HabitCompletion.class);
+            }
+        }
+        users.addAndGet(userRows.size());
+        habits.addAndGet(habitRows.size());
+        completions.addAndGet(completionRows.size());
+    }
+
+    static String email(int n) {
+        return "user" + n + "@loadtest.habitsync.net";
+    }
+
+    private Habit habit(Random random, String userId) throws ReflectiveOperationException {
+        int kind = random.nextInt(NAMES.length);
+        boolean weekly = random.nextInt(5) == 0;
+        Habit habit = new Habit();
+        assignId(habit, new ObjectId().toHexString());
+        habit.setUserId(userId);
+        habit.setName(NAMES[kind]);
+        habit.setIcon(ICONS[kind]);
+        habit.setFrequency(weekly ? Frequency.WEEKLY : Frequency.DAILY);
+        habit.setGoalPerWeek(weekly ? 2 + random.nextInt(4) : 7);
+        habit.setReminderTime(random.nextBoolean() ? LocalTime.of(6 + random.nextInt(16), random.nextInt(4) * 15) : null);
+        habit.setArchived(random.nextDouble() < archivedRatio);
+        habit.setCreatedAt(Instant.now());
+        return habit;
+    }
+
+    /**
+     * A two-state walk over the habit's lifetime: a completed day is followed by another with
+     * probability {@code adherence}, and a missed day by a completed one with the same
+     * probability, so runs average {@code 1 / (1 - adherence)} days.
+     */
+    private DayBitSet history(Random random) {
+        if (historyDays == 0) {
+            return null;
+        }
+        LocalDate first = today.minusDays(random.nextInt(historyDays));
+        LocalDate last = random.nextInt(4) == 0
+                ? first.plusDays(random.nextInt((int) (today.toEpochDay() - first.toEpochDay()) + 1))
+                : today;
+        double adherence = 0.5 + random.nextDouble() * 0.45;
+
+        LocalDate lo = null;
+        LocalDate hi = null;
+        boolean[] done = new boolean[(int) (last.toEpochDay() - first.toEpochDay()) + 1];
+        boolean completed = random.nextDouble() < adherence;
+        for (int i = 0; i < done.length; i++) {
+            done[i] = completed;
+            if (completed) {
+                LocalDate d = first.plusDays(i);
+                lo = lo == null ? d : lo;
+                hi = d;
+            }
+            completed = random.nextDouble() < adherence;
+        }
+        if (lo == null) {
+            return null;
+        }
+        DayBitSet days = new DayBitSet(lo, hi);
+        for (int i = 0; i < done.length; i++) {
+            if (done[i]) {
+                days.set(first.plusDays(i));
+            }
+        }
+        return days;
+    }
+
+    private static int streakBucket(int streak) {
+        int[] bounds = {0, 1, 7, 30, 90, 365, Integer.MAX_VALUE};
+        int bucket = Arrays.binarySearch(bounds, streak);
+        return bucket >= 0 ? bucket : -bucket - 1;
+    }
+
+    private void printStreaks() {
+        String[] labels = {"0", "1", "2-7", "8-30", "31-90", "91-365", ">365"};
+        System.out.println("current streak   habits");
+        for (int i = 0; i < labels.length; i++) {
+            System.out.printf("%-14s %8d%n", labels[i], streaks.get(i));
+        }
+    }
+
+    private static void assignId(Object entity, String id) throws ReflectiveOperationException {
+        Field field = entity.getClass().getDeclaredField("id");
+        field.setAccessible(true);
+        field.set(entity, id);
+    }
+}
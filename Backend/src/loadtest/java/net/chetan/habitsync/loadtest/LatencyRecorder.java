@@ -0,0 +1,129 @@
+package net.chetan.habitsync.loadtest;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects per-endpoint latency samples. Each endpoint keeps a growable array guarded by its
+ * own lock, which is cheap next to an HTTP round trip. Results can be saved as a CSV report and
+ * compared with an earlier one, which is how a before/after run of a change is recorded.
+ */
+public class LatencyRecorder {
+
+    private final Map<String, Samples> byEndpoint = new ConcurrentHashMap<>();
+
+    public void record(String endpoint, long latencyNanos, boolean success) {
+        byEndpoint.computeIfAbsent(endpoint, e -> new Samples()).add(latencyNanos, success);
+    }
+
+    public void print(double elapsedSeconds) {
+        System.out.printf("%-36s %9s %7s %10s %9s %9s %9s %9s%n",
+                "endpoint", "requests", "errors", "req/s", "p50 ms", "p95 ms", "p99 ms", "max ms");
+        new TreeMap<>(byEndpoint).forEach((endpoint, samples) -> {
+            long[] sorted = samples.sorted();
+            System.out.printf("%-36s %9d %7d %10.1f %9.2f %9.2f %9.2f %9.2f%n",
+                    endpoint,
+                    sorted.length,
+                    samples.errors.get(),
+                    sorted.length / elapsedSeconds,
+                    percentile(sorted, 0.50),
+                    percentile(sorted, 0.95),
+                    percentile(sorted, 0.99),
+                    percentile(sorted, 1.0));
+        });
+    }
+
+    /**
+     * Writes one CSV row per endpoint: requests, errors, req/s and the p50, p95, p99 and max
+     * latencies in milliseconds.
+     */
+    public void writeReport(Path file, double elapsedSeconds) throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add("endpoint,requests,errors,rps,p50_ms,p95_ms,p99_ms,max_ms");
+        new TreeMap<>(byEndpoint).forEach((endpoint, samples) -> {
+            long[] sorted = samples.sorted();
+            lines.add(String.format(Locale.ROOT, "%s,%d,%d,%.1f,%.2f,%.2f,%.2f,%.2f",
+                    endpoint.replace(',', ' '),
+                    sorted.length,
+                    samples.errors.get(),
+                    sorted.length / elapsedSeconds,
+                    percentile(sorted, 0.50),
+                    percentile(sorted, 0.95),
+                    percentile(sorted, 0.99),
+                    percentile(sorted, 1.0)));
+        });
+        Files.write(file, lines);
+    }
+
+    /**
+     * Prints req/s and p99 of this run next to those of an earlier report, per endpoint.
+     */
+    public void printComparison(Path baselineReport, double elapsedSeconds) throws IOException {
+        Map<String, String[]> baseline = new HashMap<>();
+        List<String> lines = Files.readAllLines(baselineReport);
+        for (String line : lines.subList(1, lines.size())) {
+            String[] fields = line.split(",");
+            baseline.put(fields[0], fields);
+        }
+        System.out.printf("%-36s %10s %10s %8s %9s %9s %8s%n",
+                "endpoint", "base req/s", "req/s", "change", "base p99", "p99", "change");
+        new TreeMap<>(byEndpoint).forEach((endpoint, samples) -> {
+            String[] before = baseline.get(endpoint.replace(',', ' '));
+            if (before == null) {
+                return;
+            }
+            long[] sorted = samples.sorted();
+            double rps = sorted.length / elapsedSeconds;
+            double p99 = percentile(sorted, 0.99);
+            double baseRps = Double.parseDouble(before[3]);
+            double baseP99 = Double.parseDouble(before[6]);
+            System.out.printf("%-36s %10.1f %10.1f %+7.1f%% %9.2f %9.2f %+7.1f%%%n",
+                    endpoint, baseRps, rps, change(baseRps, rps), baseP99, p99, change(baseP99, p99));
+        });
+    }
+
+    private static double change(double before, double after) {
+        return before == 0 ? 0 : (after - before) / before * 100;
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(index, 0)] / 1_000_000.0;
+    }
+
+    private static class Samples {
+
+        private long[] values = new long[1024];
+        private int size;
+        private final AtomicLong errors = new AtomicLong();
+
+        synchronized void add(long value, boolean success) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+            if (!success) {
+                errors.incrementAndGet();
+            }
+        }
+
+        synchronized long[] sorted() {
+            long[] copy = Arrays.copyOf(values, size);
+            Arrays.sort(copy);
+            return copy;
+        }
+    }
+}
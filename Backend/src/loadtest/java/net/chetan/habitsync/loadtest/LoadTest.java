@@ -0,0 +1,122 @@
+package net.chetan.habitsync.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Closed-loop load generator: {@code concurrency} workers run the chosen scenario until the
+ * duration elapses, then per-endpoint throughput and latency percentiles are printed.
+ * <ul>
+ *   <li>{@code scenario=endpoints} (default) issues GETs against the given paths, round robin,
+ *   as a single user. Run it once against a server started normally and once against one
+ *   started with {@code -Pjava21} (virtual threads) to compare the two modes.</li>
+ *   <li>{@code scenario=session} replays {@link SessionScenario} visits as random users from a
+ *   database seeded by {@link DatasetGenerator}.</li>
+ * </ul>
+ * {@code report=<file>} saves the results as CSV, and {@code baseline=<file>} prints them next
+ * to an earlier report, so a change is measured by saving a report before it and comparing
+ * against that report after it.
+ *
+ * <pre>
+ * mvn -Ploadtest test-compile exec:exec \
+ *     -Dloadtest.args="base-url=http://localhost:8080 concurrency=200 duration-seconds=60"
+ * mvn -Ploadtest test-compile exec:exec \
+ *     -Dloadtest.args="scenario=session users=1000000 login-ratio=0.1 think-ms=0"
+ * mvn -Ploadtest test-compile exec:exec -Dloadtest.args="report=platform-threads.csv"
+ * mvn -Ploadtest test-compile exec:exec -Dloadtest.args="baseline=platform-threads.csv report=virtual-threads.csv"
+ * </pre>
+ */
+public final class LoadTest {
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        URI baseUrl = URI.create(options.getOrDefault("base-url", "http://localhost:8080"));
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "64"));
+        Duration duration = Duration.ofSeconds(Long.parseLong(options.getOrDefault("duration-seconds", "60")));
+        List<String> paths = List.of(options.getOrDefault("paths", "/api/habits,/api/stats/overview").split(","));
+        String email = options.getOrDefault("email", "loadtest@habitsync.net");
+        String password = options.getOrDefault("password", "loadtest-password");
+        boolean sessions = options.getOrDefault("scenario", "endpoints").equals("session");
+
+        HttpClient http = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        String token = sessions ? null
+                : new ApiClient(http, baseUrl, new LatencyRecorder()).loginOrRegister("Load Test", email, password);
+
+        LatencyRecorder measured = new LatencyRecorder();
+        ApiClient measuredApi = new ApiClient(http, baseUrl, measured);
+        SessionScenario scenario = new SessionScenario(measuredApi, measured,
+                Integer.parseInt(options.getOrDefault("first-user", "0")),
+                Integer.parseInt(options.getOrDefault("users", "10000")),
+                Double.parseDouble(options.getOrDefault("login-ratio", "0.1")),
+                Duration.ofMillis(Long.parseLong(options.getOrDefault("think-ms", "0"))));
+        long deadline = System.nanoTime() + duration.toNanos();
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+        List<Future<?>> futures = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int w = 0; w < concurrency; w++) {
+            int offset = w;
+            futures.add(workers.submit(() -> {
+                int i = offset;
+                Random random = new Random(offset);
+                while (System.nanoTime() < deadline) {
+                    try {
+                        if (sessions) {
+                            scenario.run(random);
+                        } else {
+                            String path = paths.get(i++ % paths.size());
+                            measuredApi.get("GET " + path, path, token);
+                        }
+                    } catch (IOException e) {
+                        // already recorded as an error
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> f : futures) {
+            f.get();
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        workers.shutdown();
+        workers.awaitTermination(10, TimeUnit.SECONDS);
+
+        System.out.printf("%d workers running %s for %.1fs against %s%n",
+                concurrency, sessions ? "sessions" : "endpoints", elapsed, baseUrl);
+        measured.print(elapsed);
+        if (options.containsKey("report")) {
+            measured.writeReport(Path.of(options.get("report")), elapsed);
+        }
+        if (options.containsKey("baseline")) {
+            System.out.println();
+            measured.printComparison(Path.of(options.get("baseline")), elapsed);
+        }
+    }
+
+    static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq > 0) {
+                options.put(arg.substring(0, eq).replaceFirst("^--", ""), arg.substring(eq + 1));
+            }
+        }
+        return options;
+    }
+}
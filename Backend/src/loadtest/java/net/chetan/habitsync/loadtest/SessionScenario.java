@@ -0,0 +1,80 @@
+package net.chetan.habitsync.loadtest;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import tools.jackson.databind.JsonNode;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * One visit of a typical user of the app, against users seeded by {@link DatasetGenerator}:
+ * log in (or reuse the token from an earlier visit), load the habit list, tick off a few of
+ * today's habits, and open the dashboard. Each step is recorded under its endpoint template and
+ * the whole visit, think time included, under {@code session}.
+ */
+class SessionScenario {
+
+    private final ApiClient api;
+    private final LatencyRecorder recorder;
+    private final int firstUser;
+    private final int users;
+    private final double loginRatio;
+    private final Duration thinkTime;
+    private final Cache<Integer, String> tokens = Caffeine.newBuilder()
+            .maximumSize(100_000)
+            .build();
+
+    SessionScenario(ApiClient api, LatencyRecorder recorder, int firstUser, int users,
+                    double loginRatio, Duration thinkTime) {
+        this.api = api;
+        this.recorder = recorder;
+        this.firstUser = firstUser;
+        this.users = users;
+        this.loginRatio = loginRatio;
+        this.thinkTime = thinkTime;
+    }
+
+    void run(Random random) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        boolean ok = false;
+        try {
+            int n = firstUser + random.nextInt(users);
+            String token = tokens.getIfPresent(n);
+            if (token == null || random.nextDouble() < loginRatio) {
+                token = api.loginOrRegister("Load User " + n, DatasetGenerator.email(n), DatasetGenerator.PASSWORD);
+                tokens.put(n, token);
+            }
+
+            JsonNode habits = api.get("GET /api/habits", "/api/habits", token);
+            if (habits == null) {
+                return;
+            }
+            think();
+
+            List<String> open = new ArrayList<>();
+            for (JsonNode habit : habits) {
+                open.add(habit.get("id").asString());
+            }
+            int toComplete = Math.min(open.size(), random.nextInt(4));
+            for (int i = 0; i < toComplete; i++) {
+                String id = open.remove(random.nextInt(open.size()));
+                api.post("POST /api/habits/{id}/complete", "/api/habits/" + id + "/complete", token, null);
+                think();
+            }
+
+            ok = api.get("GET /api/stats/overview", "/api/stats/overview", token) != null;
+        } finally {
+            recorder.record("session", System.nanoTime() - start, ok);
+        }
+    }
+
+    private void think() throws InterruptedException {
+        if (!thinkTime.isZero()) {
+            Thread.sleep(thinkTime.toMillis());
+        }
+    }
+}
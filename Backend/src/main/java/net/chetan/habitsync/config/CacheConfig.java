@@ -0,0 +1,21 @@
+package net.chetan.habitsync.config;
+
+import net.chetan.habitsync.service.CacheInvalidationBus;
+import net.chetan.habitsync.service.LocalCacheInvalidationBus;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class CacheConfig {
+
+    /**
+     * Keeps invalidations within this instance; define another {@link CacheInvalidationBus} bean
+     * to share them when running several instances.
+     */
+    @Bean
+    @ConditionalOnMissingBean(CacheInvalidationBus.class)
+    public CacheInvalidationBus localCacheInvalidationBus() {
+        return new LocalCacheInvalidationBus();
+    }
+}
@@ -0,0 +1,16 @@
+package net.chetan.habitsync.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+@Configuration
+public class PasswordConfig {
+
+    @Bean
+    public PasswordEncoder passwordEncoder(@Value("${habitsync.security.bcrypt.strength:10}") int strength) {
+        return new BCryptPasswordEncoder(strength);
+    }
+}
@@ -0,0 +1,26 @@
+package net.chetan.habitsync.config;
+
+import net.chetan.habitsync.monitoring.QueryAccounting;
+import net.chetan.habitsync.monitoring.QueryAccountingListener;
+import org.springframework.boot.mongodb.autoconfigure.MongoClientSettingsBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskDecorator;
+
+@Configuration
+public class QueryAccountingConfig {
+
+    @Bean
+    public MongoClientSettingsBuilderCustomizer queryAccountingCustomizer() {
+        return settings -> settings.addCommandListener(new QueryAccountingListener());
+    }
+
+    /**
+     * Applied by Boot to the application task executor, so queries a request forks onto it are
+     * still counted against that request.
+     */
+    @Bean
+    public TaskDecorator queryAccountingTaskDecorator() {
+        return QueryAccounting::propagate;
+    }
+}
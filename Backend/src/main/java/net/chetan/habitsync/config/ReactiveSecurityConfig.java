@@ -0,0 +1,62 @@
+package net.chetan.habitsync.config;
+
+import net.chetan.habitsync.security.ReactiveJwtAuthenticationManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
+import org.springframework.security.config.web.server.SecurityWebFiltersOrder;
+import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.security.web.server.authentication.AuthenticationWebFilter;
+import org.springframework.security.web.server.context.NoOpServerSecurityContextRepository;
+import org.springframework.security.web.server.util.matcher.ServerWebExchangeMatcher.MatchResult;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+
+@Configuration
+@EnableWebFluxSecurity
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveSecurityConfig {
+
+    @Bean
+    public SecurityWebFilterChain securityWebFilterChain(ServerHttpSecurity http,
+                                                         ReactiveJwtAuthenticationManager authenticationManager,
+                                                         @Value("${server.port:8080}") int serverPort,
+                                                         @Value("${management.server.port:-1}") int managementPort) {
+        int actuatorPort = managementPort > 0 && managementPort != serverPort ? managementPort : -1;
+        AuthenticationWebFilter jwtFilter = new AuthenticationWebFilter(authenticationManager);
+        jwtFilter.setServerAuthenticationConverter(exchange -> {
+            String authHeader = exchange.getRequest().getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+            if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+                return Mono.empty();
+            }
+            String token = authHeader.substring(7);
+            return Mono.just(UsernamePasswordAuthenticationToken.unauthenticated(token, token));
+        });
+        jwtFilter.setSecurityContextRepository(NoOpServerSecurityContextRepository.getInstance());
+
+        return http
+                .csrf(csrf -> csrf.disable())
+                .httpBasic(basic -> basic.disable())
+                .formLogin(form -> form.disable())
+                .securityContextRepository(NoOpServerSecurityContextRepository.getInstance())
+                .authorizeExchange(auth -> auth
+                        .pathMatchers("/api/auth/**").permitAll()
+                        .pathMatchers("/actuator/health").permitAll()
+                        // the rest of the actuator, Prometheus included, is only open on its own port
+                        .matchers(exchange -> {
+                            InetSocketAddress local = exchange.getRequest().getLocalAddress();
+                            return local != null && local.getPort() == actuatorPort
+                                    ? MatchResult.match() : MatchResult.notMatch();
+                        }).permitAll()
+                        .anyExchange().authenticated()
+                )
+                .addFilterAt(jwtFilter, SecurityWebFiltersOrder.AUTHENTICATION)
+                .build();
+    }
+}
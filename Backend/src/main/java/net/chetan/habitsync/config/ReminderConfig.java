@@ -0,0 +1,20 @@
+package net.chetan.habitsync.config;
+
+import net.chetan.habitsync.reminder.LoggingReminderSender;
+import net.chetan.habitsync.reminder.ReminderSender;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class ReminderConfig {
+
+    /**
+     * Logs reminders instead of delivering them; any other {@link ReminderSender} bean replaces it.
+     */
+    @Bean
+    @ConditionalOnMissingBean(ReminderSender.class)
+    public ReminderSender loggingReminderSender() {
+        return new LoggingReminderSender();
+    }
+}
@@ -5,6 +5,8 @@ import net.chetan.habitsync.service.AuthService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.concurrent.CompletableFuture;
+
 @RestController
 @RequestMapping("/api/auth")
 @CrossOrigin
@@ -17,12 +19,12 @@ public class AuthController {
     }
 
     @PostMapping("/register")
-    public ResponseEntity<AuthResponse> register(@RequestBody RegisterRequest request) {
-        return ResponseEntity.ok(authService.register(request));
+    public CompletableFuture<ResponseEntity<AuthResponse>> register(@RequestBody RegisterRequest request) {
+        return authService.register(request).thenApply(ResponseEntity::ok);
     }
 
     @PostMapping("/login")
-    public ResponseEntity<AuthResponse> login(@RequestBody LoginRequest request) {
-        return ResponseEntity.ok(authService.login(request));
+    public CompletableFuture<ResponseEntity<AuthResponse>> login(@RequestBody LoginRequest request) {
+        return authService.login(request).thenApply(ResponseEntity::ok);
     }
 }
@@ -15,6 +15,9 @@ public abstract class BaseController {
 
     protected User currentUser() {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth.getPrincipal() instanceof User user) {
+            return user;
+        }
         String email = auth.getName();
         return userRepository.findByEmail(email)
                 .orElseThrow(() -> new RuntimeException("User not found"));
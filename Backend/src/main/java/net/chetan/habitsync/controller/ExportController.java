@@ -0,0 +1,67 @@
+package net.chetan.habitsync.controller;
+
+import net.chetan.habitsync.model.User;
+import net.chetan.habitsync.repository.UserRepository;
+import net.chetan.habitsync.service.ExportService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@RequestMapping("/api/export")
+@CrossOrigin
+public class ExportController extends BaseController {
+
+    static final ContentDisposition ATTACHMENT = ContentDisposition.attachment()
+            .filename("habitsync-export.ndjson")
+            .build();
+
+    private final ExportService exportService;
+    private final JsonMapper jsonMapper;
+
+    public ExportController(ExportService exportService,
+                            JsonMapper jsonMapper,
+                            UserRepository userRepository) {
+        super(userRepository);
+        this.exportService = exportService;
+        this.jsonMapper = jsonMapper;
+    }
+
+    /**
+     * Writes each record to the response as it comes off the cursor. The first line is flushed
+     * on its own so the download starts before the completions are read. The body is written
+     * as an async request, so {@code spring.mvc.async.request-timeout} bounds how long an export
+     * may take.
+     */
+    @GetMapping
+    public ResponseEntity<StreamingResponseBody> export() {
+        User user = currentUser();
+        StreamingResponseBody body = out -> {
+            try (Stream<Object> records = exportService.records(user)) {
+                Iterator<Object> it = records.iterator();
+                boolean first = true;
+                while (it.hasNext()) {
+                    out.write(jsonMapper.writeValueAsBytes(it.next()));
+                    out.write('\n');
+                    if (first) {
+                        out.flush();
+                        first = false;
+                    }
+                }
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ATTACHMENT.toString())
+                .body(body);
+    }
+}
@@ -2,31 +2,89 @@ package net.chetan.habitsync.controller;
 
 import net.chetan.habitsync.dto.HabitDtos.*;
 import net.chetan.habitsync.model.User;
+import net.chetan.habitsync.monitoring.QueryBudget;
 import net.chetan.habitsync.repository.UserRepository;
+import net.chetan.habitsync.service.DashboardCache;
+import net.chetan.habitsync.service.DataVersionService;
 import net.chetan.habitsync.service.HabitService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.time.LocalDate;
 import java.util.List;
 
 @RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RequestMapping("/api/habits")
 @CrossOrigin
 public class HabitController extends BaseController {
 
     private final HabitService habitService;
+    private final DataVersionService dataVersionService;
+    private final DashboardCache dashboardCache;
 
     public HabitController(HabitService habitService,
+                           DataVersionService dataVersionService,
+                           DashboardCache dashboardCache,
                            UserRepository userRepository) {
         super(userRepository);
         this.habitService = habitService;
+        this.dataVersionService = dataVersionService;
+        this.dashboardCache = dashboardCache;
     }
 
+    // principal, data version, habits and rollups; three once the principal is cached
     @GetMapping
-    public ResponseEntity<List<HabitResponse>> getAllHabits() {
+    @QueryBudget(4)
+    public ResponseEntity<List<HabitResponse>> getAllHabits(WebRequest request) {
         User user = currentUser();
-        return ResponseEntity.ok(habitService.getHabitsForUser(user));
+        String etag = dataVersionService.etag(user.getId());
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .body(dashboardCache.habits(user, () -> habitService.getHabitsForUser(user)));
+    }
+
+    @GetMapping("/history")
+    @QueryBudget(4)
+    public ResponseEntity<List<HabitHistory>> historyForUser(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            WebRequest request) {
+        User user = currentUser();
+        String etag = dataVersionService.etag(user.getId());
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .body(habitService.getHistoryForUser(user, from, to));
+    }
+
+    @GetMapping("/{id}/history")
+    @QueryBudget(4)
+    public ResponseEntity<HabitHistory> history(
+            @PathVariable String id,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            WebRequest request) {
+        User user = currentUser();
+        String etag = dataVersionService.etag(user.getId());
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .body(habitService.getHistory(user, id, from, to));
     }
 
     @PostMapping
@@ -34,6 +92,12 @@ public class HabitController extends BaseController {
         return ResponseEntity.ok(habitService.createHabit(currentUser(), request));
     }
 
+    @PostMapping("/completions:batch")
+    @QueryBudget(11)
+    public ResponseEntity<BatchCompletionResponse> completeBatch(@RequestBody List<BatchCompletionItem> items) {
+        return ResponseEntity.ok(habitService.completeBatch(currentUser(), items));
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<HabitResponse> update(
             @PathVariable String id,
@@ -48,6 +112,7 @@ public class HabitController extends BaseController {
     }
 
     @PostMapping("/{id}/complete")
+    @QueryBudget(9)
     public ResponseEntity<HabitResponse> complete(
             @PathVariable String id,
             @RequestBody(required = false) CompletionRequest completionRequest) {
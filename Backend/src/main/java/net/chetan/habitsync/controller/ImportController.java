@@ -0,0 +1,36 @@
+package net.chetan.habitsync.controller;
+
+import net.chetan.habitsync.dto.ImportDtos.ImportResponse;
+import net.chetan.habitsync.repository.UserRepository;
+import net.chetan.habitsync.service.ImportService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.InputStream;
+
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@RequestMapping("/api/import")
+@CrossOrigin
+public class ImportController extends BaseController {
+
+    private final ImportService importService;
+
+    public ImportController(ImportService importService,
+                            UserRepository userRepository) {
+        super(userRepository);
+        this.importService = importService;
+    }
+
+    @PostMapping(consumes = "text/csv")
+    public ResponseEntity<ImportResponse> importCsv(InputStream body) {
+        return ResponseEntity.ok(importService.importCsv(currentUser(), body));
+    }
+
+    @PostMapping(consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<ImportResponse> importNdjson(InputStream body) {
+        return ResponseEntity.ok(importService.importNdjson(currentUser(), body));
+    }
+}
@@ -1,17 +1,28 @@
 package net.chetan.habitsync.controller;
 
+import net.chetan.habitsync.dto.ProfileDtos.TimeZoneRequest;
 import net.chetan.habitsync.model.User;
+import net.chetan.habitsync.reminder.ReminderScheduler;
 import net.chetan.habitsync.repository.UserRepository;
+import net.chetan.habitsync.service.TimeZones;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 @RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RequestMapping("/api/profile")
 @CrossOrigin
 public class ProfileController extends BaseController {
 
-    public ProfileController(UserRepository userRepository) {
+    private final UserRepository userRepository;
+    private final ReminderScheduler reminderScheduler;
+
+    public ProfileController(UserRepository userRepository,
+                             ReminderScheduler reminderScheduler) {
         super(userRepository);
+        this.userRepository = userRepository;
+        this.reminderScheduler = reminderScheduler;
     }
 
     @GetMapping
@@ -19,8 +30,23 @@ public class ProfileController extends BaseController {
         return ResponseEntity.ok(currentUser());
     }
 
+    /**
+     * Updates a freshly loaded copy of the user rather than the cached principal, which other
+     * requests share. The save evicts the cached one.
+     */
+    @PutMapping("/time-zone")
+    public ResponseEntity<User> setTimeZone(@RequestBody TimeZoneRequest request) {
+        User user = userRepository.findById(currentUser().getId())
+                .orElseThrow(() -> new RuntimeException("User not found"));
+        user.setTimeZone(TimeZones.validZone(request.timeZone()));
+        User saved = userRepository.save(user);
+        reminderScheduler.rescheduleUser(saved);
+        return ResponseEntity.ok(saved);
+    }
+
     @PostMapping("/test-notification")
     public ResponseEntity<String> testNotification() {
+        reminderScheduler.sendTest(currentUser());
         return ResponseEntity.ok("Notification test triggered");
     }
 }
@@ -0,0 +1,43 @@
+package net.chetan.habitsync.controller;
+
+import net.chetan.habitsync.model.User;
+import net.chetan.habitsync.service.ExportService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequestMapping("/api/export")
+@CrossOrigin
+public class ReactiveExportController {
+
+    static final ContentDisposition ATTACHMENT = ContentDisposition.attachment()
+            .filename("habitsync-export.ndjson")
+            .build();
+
+    private final ExportService exportService;
+
+    public ReactiveExportController(ExportService exportService) {
+        this.exportService = exportService;
+    }
+
+    /**
+     * The cursor is pulled on the bounded elastic scheduler as the client asks for more, and
+     * closed when the export completes or the client goes away.
+     */
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<Flux<Object>> export(@AuthenticationPrincipal User user) {
+        Flux<Object> records = Flux.fromStream(() -> exportService.records(user))
+                .subscribeOn(Schedulers.boundedElastic());
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, ATTACHMENT.toString())
+                .body(records);
+    }
+}
@@ -0,0 +1,117 @@
+package net.chetan.habitsync.controller;
+
+import net.chetan.habitsync.dto.HabitDtos.*;
+import net.chetan.habitsync.model.User;
+import net.chetan.habitsync.service.DashboardCache;
+import net.chetan.habitsync.service.ReactiveDataVersionService;
+import net.chetan.habitsync.service.ReactiveHabitService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequestMapping("/api/habits")
+@CrossOrigin
+public class ReactiveHabitController {
+
+    private final ReactiveHabitService habitService;
+    private final ReactiveDataVersionService dataVersionService;
+    private final DashboardCache dashboardCache;
+
+    public ReactiveHabitController(ReactiveHabitService habitService,
+                                   ReactiveDataVersionService dataVersionService,
+                                   DashboardCache dashboardCache) {
+        this.habitService = habitService;
+        this.dataVersionService = dataVersionService;
+        this.dashboardCache = dashboardCache;
+    }
+
+    @GetMapping
+    public Mono<ResponseEntity<List<HabitResponse>>> getAllHabits(@AuthenticationPrincipal User user,
+                                                                  ServerWebExchange exchange) {
+        return dataVersionService.etag(user.getId()).flatMap(etag -> exchange.checkNotModified(etag)
+                ? Mono.empty()
+                : dashboardCache.habits(user, habitService.getHabitsForUser(user).collectList()).map(habits -> ResponseEntity.ok()
+                        .eTag(etag)
+                        .cacheControl(CacheControl.noCache().cachePrivate())
+                        .body(habits)));
+    }
+
+    @GetMapping("/history")
+    public Mono<ResponseEntity<List<HabitHistory>>> historyForUser(
+            @AuthenticationPrincipal User user,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            ServerWebExchange exchange) {
+        return dataVersionService.etag(user.getId()).flatMap(etag -> exchange.checkNotModified(etag)
+                ? Mono.empty()
+                : habitService.getHistoryForUser(user, from, to).map(history -> ResponseEntity.ok()
+                        .eTag(etag)
+                        .cacheControl(CacheControl.noCache().cachePrivate())
+                        .body(history)));
+    }
+
+    @GetMapping("/{id}/history")
+    public Mono<ResponseEntity<HabitHistory>> history(
+            @AuthenticationPrincipal User user,
+            @PathVariable String id,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            ServerWebExchange exchange) {
+        return dataVersionService.etag(user.getId()).flatMap(etag -> exchange.checkNotModified(etag)
+                ? Mono.empty()
+                : habitService.getHistory(user, id, from, to).map(history -> ResponseEntity.ok()
+                        .eTag(etag)
+                        .cacheControl(CacheControl.noCache().cachePrivate())
+                        .body(history)));
+    }
+
+    @PostMapping
+    public Mono<HabitResponse> create(@AuthenticationPrincipal User user,
+                                      @RequestBody HabitRequest request) {
+        return habitService.createHabit(user, request);
+    }
+
+    @PostMapping("/completions:batch")
+    public Mono<BatchCompletionResponse> completeBatch(@AuthenticationPrincipal User user,
+                                                       @RequestBody List<BatchCompletionItem> items) {
+        return habitService.completeBatch(user, items);
+    }
+
+    @PutMapping("/{id}")
+    public Mono<HabitResponse> update(
+            @AuthenticationPrincipal User user,
+            @PathVariable String id,
+            @RequestBody HabitRequest request) {
+        return habitService.updateHabit(user, id, request);
+    }
+
+    @DeleteMapping("/{id}")
+    public Mono<ResponseEntity<Void>> delete(@AuthenticationPrincipal User user,
+                                             @PathVariable String id) {
+        return habitService.deleteHabit(user, id)
+                .then(Mono.just(ResponseEntity.noContent().build()));
+    }
+
+    @PostMapping("/{id}/complete")
+    public Mono<HabitResponse> complete(
+            @AuthenticationPrincipal User user,
+            @PathVariable String id,
+            @RequestBody(required = false) CompletionRequest completionRequest) {
+
+        LocalDate date = completionRequest != null
+                ? completionRequest.date()
+                : LocalDate.now();
+
+        return habitService.completeHabitToday(user, id, date);
+    }
+}
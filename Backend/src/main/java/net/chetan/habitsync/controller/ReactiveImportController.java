@@ -0,0 +1,58 @@
+package net.chetan.habitsync.controller;
+
+import net.chetan.habitsync.dto.ImportDtos.ImportResponse;
+import net.chetan.habitsync.model.User;
+import net.chetan.habitsync.service.ImportService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.InputStream;
+import java.util.function.Function;
+
+/**
+ * The body is exposed to the blocking import as an input stream that requests a few buffers
+ * at a time, so a large upload is read as the import consumes it rather than held in memory.
+ */
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequestMapping("/api/import")
+@CrossOrigin
+public class ReactiveImportController {
+
+    static final int DEMAND = 4;
+
+    private final ImportService importService;
+
+    public ReactiveImportController(ImportService importService) {
+        this.importService = importService;
+    }
+
+    @PostMapping(consumes = "text/csv")
+    public Mono<ImportResponse> importCsv(@AuthenticationPrincipal User user,
+                                          @RequestBody Flux<DataBuffer> body) {
+        return importFrom(body, in -> importService.importCsv(user, in));
+    }
+
+    @PostMapping(consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public Mono<ImportResponse> importNdjson(@AuthenticationPrincipal User user,
+                                             @RequestBody Flux<DataBuffer> body) {
+        return importFrom(body, in -> importService.importNdjson(user, in));
+    }
+
+    private static Mono<ImportResponse> importFrom(Flux<DataBuffer> body,
+                                                   Function<InputStream, ImportResponse> task) {
+        return Mono.fromCallable(() -> {
+                    try (InputStream in = DataBufferUtils.subscriberInputStream(body, DEMAND)) {
+                        return task.apply(in);
+                    }
+                })
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+}
@@ -0,0 +1,60 @@
+package net.chetan.habitsync.controller;
+
+import net.chetan.habitsync.dto.ProfileDtos.TimeZoneRequest;
+import net.chetan.habitsync.model.User;
+import net.chetan.habitsync.reminder.ReminderScheduler;
+import net.chetan.habitsync.repository.UserRepository;
+import net.chetan.habitsync.service.TimeZones;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequestMapping("/api/profile")
+@CrossOrigin
+public class ReactiveProfileController {
+
+    private final UserRepository userRepository;
+    private final ReminderScheduler reminderScheduler;
+
+    public ReactiveProfileController(UserRepository userRepository,
+                                     ReminderScheduler reminderScheduler) {
+        this.userRepository = userRepository;
+        this.reminderScheduler = reminderScheduler;
+    }
+
+    @GetMapping
+    public ResponseEntity<User> me(@AuthenticationPrincipal User user) {
+        return ResponseEntity.ok(user);
+    }
+
+    /**
+     * Saves a fresh copy of the user, as {@link ProfileController} does, and leaves the shared
+     * principal untouched.
+     */
+    @PutMapping("/time-zone")
+    public Mono<User> setTimeZone(@AuthenticationPrincipal User principal,
+                                  @RequestBody TimeZoneRequest request) {
+        String zone = TimeZones.validZone(request.timeZone());
+        return Mono.fromCallable(() -> {
+                    User user = userRepository.findById(principal.getId())
+                            .orElseThrow(() -> new RuntimeException("User not found"));
+                    user.setTimeZone(zone);
+                    User saved = userRepository.save(user);
+                    reminderScheduler.rescheduleUser(saved);
+                    return saved;
+                })
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    @PostMapping("/test-notification")
+    public Mono<ResponseEntity<String>> testNotification(@AuthenticationPrincipal User user) {
+        return Mono.fromRunnable(() -> reminderScheduler.sendTest(user))
+                .subscribeOn(Schedulers.boundedElastic())
+                .thenReturn(ResponseEntity.ok("Notification test triggered"));
+    }
+}
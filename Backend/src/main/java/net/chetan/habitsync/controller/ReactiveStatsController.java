@@ -0,0 +1,59 @@
+package net.chetan.habitsync.controller;
+
+import net.chetan.habitsync.dto.StatsDtos.OverviewStats;
+import net.chetan.habitsync.dto.StatsDtos.TrendsResponse;
+import net.chetan.habitsync.model.User;
+import net.chetan.habitsync.service.DashboardCache;
+import net.chetan.habitsync.service.ReactiveDataVersionService;
+import net.chetan.habitsync.service.ReactiveStatsService;
+import net.chetan.habitsync.service.StatsRollupService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequestMapping("/api/stats")
+@CrossOrigin
+public class ReactiveStatsController {
+
+    private final ReactiveStatsService statsService;
+    private final ReactiveDataVersionService dataVersionService;
+    private final DashboardCache dashboardCache;
+    private final StatsRollupService statsRollupService;
+
+    public ReactiveStatsController(ReactiveStatsService statsService,
+                                   ReactiveDataVersionService dataVersionService,
+                                   DashboardCache dashboardCache,
+                                   StatsRollupService statsRollupService) {
+        this.statsService = statsService;
+        this.dataVersionService = dataVersionService;
+        this.dashboardCache = dashboardCache;
+        this.statsRollupService = statsRollupService;
+    }
+
+    @GetMapping("/overview")
+    public Mono<ResponseEntity<OverviewStats>> getOverview(@AuthenticationPrincipal User user,
+                                                           ServerWebExchange exchange) {
+        return dataVersionService.etag(user.getId()).flatMap(etag -> exchange.checkNotModified(etag)
+                ? Mono.empty()
+                : dashboardCache.overview(user, statsService.getOverview(user)).map(overview -> ResponseEntity.ok()
+                        .eTag(etag)
+                        .cacheControl(CacheControl.noCache().cachePrivate())
+                        .body(overview)));
+    }
+
+    @GetMapping("/trends")
+    public Mono<TrendsResponse> getTrends(@AuthenticationPrincipal User user,
+                                          @RequestParam(defaultValue = "month") String granularity,
+                                          @RequestParam(defaultValue = "1y") String range,
+                                          @RequestParam(required = false) String habitId) {
+        return Mono.fromCallable(() -> statsRollupService.trends(user, habitId, granularity, range))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+}
@@ -0,0 +1,30 @@
+package net.chetan.habitsync.controller;
+
+import net.chetan.habitsync.dto.SyncDtos.SyncResponse;
+import net.chetan.habitsync.model.User;
+import net.chetan.habitsync.service.SyncService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequestMapping("/api/sync")
+@CrossOrigin
+public class ReactiveSyncController {
+
+    private final SyncService syncService;
+
+    public ReactiveSyncController(SyncService syncService) {
+        this.syncService = syncService;
+    }
+
+    @GetMapping
+    public Mono<SyncResponse> sync(@AuthenticationPrincipal User user,
+                                   @RequestParam(required = false) String since) {
+        return Mono.fromCallable(() -> syncService.sync(user, since))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+}
@@ -1,26 +1,68 @@
 package net.chetan.habitsync.controller;
 
 import net.chetan.habitsync.dto.StatsDtos.OverviewStats;
+import net.chetan.habitsync.dto.StatsDtos.TrendsResponse;
+import net.chetan.habitsync.model.User;
+import net.chetan.habitsync.monitoring.QueryBudget;
 import net.chetan.habitsync.repository.UserRepository;
+import net.chetan.habitsync.service.DashboardCache;
+import net.chetan.habitsync.service.DataVersionService;
+import net.chetan.habitsync.service.StatsRollupService;
 import net.chetan.habitsync.service.StatsService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 @RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RequestMapping("/api/stats")
 @CrossOrigin
 public class StatsController extends BaseController {
 
     private final StatsService statsService;
+    private final DataVersionService dataVersionService;
+    private final DashboardCache dashboardCache;
+    private final StatsRollupService statsRollupService;
 
     public StatsController(StatsService statsService,
+                           DataVersionService dataVersionService,
+                           DashboardCache dashboardCache,
+                           StatsRollupService statsRollupService,
                            UserRepository userRepository) {
         super(userRepository);
         this.statsService = statsService;
+        this.dataVersionService = dataVersionService;
+        this.dashboardCache = dashboardCache;
+        this.statsRollupService = statsRollupService;
     }
 
     @GetMapping("/overview")
-    public ResponseEntity<OverviewStats> getOverview() {
-        return ResponseEntity.ok(statsService.getOverview(currentUser()));
+    @QueryBudget(5)
+    public ResponseEntity<OverviewStats> getOverview(WebRequest request) {
+        User user = currentUser();
+        String etag = dataVersionService.etag(user.getId());
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .body(dashboardCache.overview(user, () -> statsService.getOverview(user)));
+    }
+
+    /**
+     * Completions per week, month or year over a range like {@code 12w}, {@code 6m} or
+     * {@code 2y}, read from the stats rollups only. No ETag, since rollups are updated after the
+     * data version changes.
+     */
+    // principal, the habit's ownership check when one is given, and its rollups
+    @GetMapping("/trends")
+    @QueryBudget(3)
+    public TrendsResponse getTrends(@RequestParam(defaultValue = "month") String granularity,
+                                    @RequestParam(defaultValue = "1y") String range,
+                                    @RequestParam(required = false) String habitId) {
+        return statsRollupService.trends(currentUser(), habitId, granularity, range);
     }
 }
@@ -0,0 +1,30 @@
+package net.chetan.habitsync.controller;
+
+import net.chetan.habitsync.dto.SyncDtos.SyncResponse;
+import net.chetan.habitsync.monitoring.QueryBudget;
+import net.chetan.habitsync.repository.UserRepository;
+import net.chetan.habitsync.service.SyncService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@RequestMapping("/api/sync")
+@CrossOrigin
+public class SyncController extends BaseController {
+
+    private final SyncService syncService;
+
+    public SyncController(SyncService syncService,
+                          UserRepository userRepository) {
+        super(userRepository);
+        this.syncService = syncService;
+    }
+
+    @GetMapping
+    @QueryBudget(6)
+    public ResponseEntity<SyncResponse> sync(@RequestParam(required = false) String since) {
+        return ResponseEntity.ok(syncService.sync(currentUser(), since));
+    }
+}
@@ -0,0 +1,43 @@
+package net.chetan.habitsync.dto;
+
+import net.chetan.habitsync.model.Habit.Frequency;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * Lines of an account export. Each line is one JSON object whose {@code type} says which
+ * record it is.
+ */
+public class ExportDtos {
+
+    public record UserRecord(
+            String type,
+            String id,
+            String name,
+            String email,
+            String provider,
+            Instant createdAt
+    ) {}
+
+    public record HabitRecord(
+            String type,
+            String id,
+            String name,
+            String icon,
+            Frequency frequency,
+            int goalPerWeek,
+            LocalTime reminderTime,
+            String motivationalQuote,
+            boolean archived,
+            Instant createdAt,
+            Instant updatedAt
+    ) {}
+
+    public record CompletionRecord(
+            String type,
+            String habitId,
+            LocalDate date
+    ) {}
+}
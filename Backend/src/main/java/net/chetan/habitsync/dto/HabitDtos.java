@@ -4,6 +4,7 @@ import net.chetan.habitsync.model.Habit.Frequency;
 
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.util.List;
 
 public class HabitDtos {
 
@@ -29,4 +30,42 @@ public class HabitDtos {
     ) {}
 
     public record CompletionRequest(LocalDate date) {}
+
+    /**
+     * A missing date means today and a missing {@code completed} means true, as with the
+     * single completion endpoint.
+     */
+    /**
+     * Completed days of a habit in {@code [from, to]} as base64 of a little-endian bitmap, where
+     * bit {@code i} is day {@code from + i}. Bytes past the last completed day are left out.
+     */
+    public record HabitHistory(
+            String habitId,
+            LocalDate from,
+            LocalDate to,
+            int completedDays,
+            String bitmap
+    ) {}
+
+    public record BatchCompletionItem(
+            String habitId,
+            LocalDate date,
+            Boolean completed
+    ) {}
+
+    public enum BatchItemStatus {
+        APPLIED, NOT_FOUND, FAILED
+    }
+
+    public record BatchItemResult(
+            int index,
+            String habitId,
+            LocalDate date,
+            BatchItemStatus status
+    ) {}
+
+    public record BatchCompletionResponse(
+            List<BatchItemResult> results,
+            List<HabitResponse> habits
+    ) {}
 }
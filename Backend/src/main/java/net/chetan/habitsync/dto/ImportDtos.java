@@ -0,0 +1,23 @@
+package net.chetan.habitsync.dto;
+
+import java.util.List;
+
+public class ImportDtos {
+
+    public record ImportError(
+            long line,
+            String message
+    ) {}
+
+    /**
+     * Outcome of an import. Lines that could not be read are skipped and counted, and the first
+     * few are listed in {@code errors}; {@code failed} counts completions the database rejected.
+     */
+    public record ImportResponse(
+            int habitsCreated,
+            long completionsImported,
+            long failed,
+            long skippedLines,
+            List<ImportError> errors
+    ) {}
+}
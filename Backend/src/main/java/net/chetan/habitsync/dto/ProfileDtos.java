@@ -0,0 +1,11 @@
+package net.chetan.habitsync.dto;
+
+public class ProfileDtos {
+
+    /**
+     * An IANA zone ID such as {@code Europe/Berlin}; reminders fire at local time in this zone.
+     */
+    public record TimeZoneRequest(
+            String timeZone
+    ) {}
+}
@@ -1,5 +1,6 @@
 package net.chetan.habitsync.dto;
 
+import java.time.LocalDate;
 import java.util.List;
 
 public class StatsDtos {
@@ -19,4 +20,20 @@ public class StatsDtos {
             int longestStreak,
             List<HabitBreakdownItem> habitBreakdown
     ) {}
+
+    public record TrendPoint(
+            LocalDate periodStart,
+            int completed
+    ) {}
+
+    /**
+     * Completed days per period from {@code from} to the period containing today, one point per
+     * period including empty ones. {@code habitId} is null for the total of all habits.
+     */
+    public record TrendsResponse(
+            String granularity,
+            String habitId,
+            LocalDate from,
+            List<TrendPoint> points
+    ) {}
 }
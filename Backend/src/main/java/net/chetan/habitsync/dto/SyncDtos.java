@@ -0,0 +1,23 @@
+package net.chetan.habitsync.dto;
+
+import net.chetan.habitsync.dto.HabitDtos.HabitResponse;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public class SyncDtos {
+
+    public record CompletionChange(
+            String habitId,
+            LocalDate date,
+            boolean completed
+    ) {}
+
+    public record SyncResponse(
+            String cursor,
+            boolean full,
+            List<HabitResponse> habits,
+            List<String> archivedHabitIds,
+            List<CompletionChange> completions
+    ) {}
+}
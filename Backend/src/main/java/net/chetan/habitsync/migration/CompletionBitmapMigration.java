@@ -0,0 +1,68 @@
+package net.chetan.habitsync.migration;
+
+import net.chetan.habitsync.model.HabitCompletion;
+import net.chetan.habitsync.model.HabitCompletionBitmap;
+import net.chetan.habitsync.service.BitmapCompletionStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.util.stream.Stream;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Copies completed days from {@code habit_completions} into yearly bitmaps. Setting a bit is
+ * idempotent, so the migration can be rerun or interrupted safely.
+ */
+@Component
+@ConditionalOnProperty(name = "habitsync.completions.migrate-to-bitmap", havingValue = "true")
+public class CompletionBitmapMigration implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(CompletionBitmapMigration.class);
+
+    static final int BATCH_SIZE = 1000;
+
+    private final MongoTemplate mongoTemplate;
+
+    public CompletionBitmapMigration(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        Query source = query(where("completed").is(true));
+        source.fields().include("userId").include("habitId").include("date");
+
+        long migrated = 0;
+        int pending = 0;
+        BulkOperations bulk = newBulk();
+        try (Stream<HabitCompletion> completions = mongoTemplate.stream(source, HabitCompletion.class)) {
+            for (HabitCompletion c : (Iterable<HabitCompletion>) completions::iterator) {
+                bulk.upsert(BitmapCompletionStore.queryFor(c.getHabitId(), c.getDate()),
+                        BitmapCompletionStore.completionUpdate(c.getUserId(), c.getHabitId(), c.getDate()));
+                migrated++;
+                if (++pending == BATCH_SIZE) {
+                    bulk.execute();
+                    bulk = newBulk();
+                    pending = 0;
+                }
+            }
+        }
+        if (pending > 0) {
+            bulk.execute();
+        }
+        log.info("Migrated {} completions into habit_completion_bitmaps", migrated);
+    }
+
+    private BulkOperations newBulk() {
+        return mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, HabitCompletionBitmap.class);
+    }
+}
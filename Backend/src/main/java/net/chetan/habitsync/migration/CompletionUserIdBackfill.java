@@ -0,0 +1,96 @@
+package net.chetan.habitsync.migration;
+
+import net.chetan.habitsync.model.Habit;
+import net.chetan.habitsync.model.HabitCompletion;
+import net.chetan.habitsync.model.HabitCompletionBitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.stream.Stream;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Copies each habit's {@code userId} onto its completions and completion bitmaps that do not
+ * have one yet. Runs in the background while the application serves requests: new writes set
+ * the user ID themselves, and the backfill only touches documents still missing it, so it can
+ * be rerun or interrupted safely. Turn on {@code habitsync.completions.query-by-user} once it
+ * has completed.
+ */
+@Component
+@ConditionalOnProperty(name = "habitsync.completions.backfill-user-id", havingValue = "true")
+public class CompletionUserIdBackfill implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(CompletionUserIdBackfill.class);
+
+    static final int BATCH_SIZE = 500;
+
+    private final MongoTemplate mongoTemplate;
+    private final AsyncTaskExecutor taskExecutor;
+
+    public CompletionUserIdBackfill(MongoTemplate mongoTemplate,
+                                    @Qualifier("applicationTaskExecutor") AsyncTaskExecutor taskExecutor) {
+        this.mongoTemplate = mongoTemplate;
+        this.taskExecutor = taskExecutor;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        taskExecutor.execute(() -> {
+            try {
+                backfill();
+            } catch (RuntimeException e) {
+                log.error("Completion userId backfill failed; rerun it to continue", e);
+            }
+        });
+    }
+
+    void backfill() {
+        Query habits = new Query();
+        habits.fields().include("userId");
+
+        long updated = 0;
+        long visited = 0;
+        int pending = 0;
+        BulkOperations completions = newBulk(HabitCompletion.class);
+        BulkOperations bitmaps = newBulk(HabitCompletionBitmap.class);
+        try (Stream<Habit> stream = mongoTemplate.stream(habits, Habit.class)) {
+            for (Habit habit : (Iterable<Habit>) stream::iterator) {
+                // served by the (habitId, ...) indexes of both collections
+                Query missing = query(where("habitId").is(habit.getId()).and("userId").exists(false));
+                Update update = Update.update("userId", habit.getUserId());
+                completions.updateMulti(missing, update);
+                bitmaps.updateMulti(missing, update);
+                visited++;
+                if (++pending == BATCH_SIZE) {
+                    updated += completions.execute().getModifiedCount() + bitmaps.execute().getModifiedCount();
+                    completions = newBulk(HabitCompletion.class);
+                    bitmaps = newBulk(HabitCompletionBitmap.class);
+                    pending = 0;
+                    if (visited % (BATCH_SIZE * 100L) == 0) {
+                        log.info("Completion userId backfill: {} habits visited, {} documents updated", visited, updated);
+                    }
+                }
+            }
+        }
+        if (pending > 0) {
+            updated += completions.execute().getModifiedCount() + bitmaps.execute().getModifiedCount();
+        }
+        log.info("Completion userId backfill complete: {} habits visited, {} documents updated", visited, updated);
+    }
+
+    private BulkOperations newBulk(Class<?> entity) {
+        return mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, entity);
+    }
+}
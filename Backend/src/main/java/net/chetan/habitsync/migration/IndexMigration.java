@@ -0,0 +1,108 @@
+package net.chetan.habitsync.migration;
+
+import net.chetan.habitsync.model.HabitCompletion;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.group;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.match;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.newAggregation;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Creates the indexes declared on mapped documents once existing data satisfies them.
+ * Automatic index creation is disabled because the unique {@code (habitId, date)} index on
+ * completions cannot be built while duplicate rows from the old find-then-save path remain.
+ * The duplicates are removed only while that index is missing: once it exists none can be
+ * written, so later starts skip the scan of the whole collection. Runs before the web server
+ * starts accepting requests.
+ */
+@Component
+public class IndexMigration implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(IndexMigration.class);
+
+    static final int BATCH_SIZE = 500;
+    static final String COMPLETION_UNIQUE_INDEX = "habit_date_unique";
+
+    private final MongoTemplate mongoTemplate;
+
+    public IndexMigration(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!hasUniqueCompletionIndex()) {
+            long removed = deduplicateCompletions();
+            if (removed > 0) {
+                log.info("Removed {} duplicate habit completions", removed);
+            }
+        }
+        createDeclaredIndexes();
+    }
+
+    boolean hasUniqueCompletionIndex() {
+        return mongoTemplate.indexOps(HabitCompletion.class).getIndexInfo().stream()
+                .anyMatch(index -> index.isUnique() && COMPLETION_UNIQUE_INDEX.equals(index.getName()));
+    }
+
+    long deduplicateCompletions() {
+        Aggregation duplicates = newAggregation(
+                group("habitId", "date")
+                        .push("_id").as("ids")
+                        .max("completed").as("completed")
+                        .count().as("count"),
+                match(where("count").gt(1))
+        ).withOptions(AggregationOptions.builder().allowDiskUse(true).build());
+
+        long removed = 0;
+        int pending = 0;
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, HabitCompletion.class);
+        try (Stream<Document> groups = mongoTemplate.aggregateStream(duplicates, HabitCompletion.class, Document.class)) {
+            for (Document group : (Iterable<Document>) groups::iterator) {
+                List<?> ids = group.getList("ids", Object.class);
+                bulk.updateOne(query(where("_id").is(ids.get(0))),
+                        Update.update("completed", group.getBoolean("completed")));
+                bulk.remove(query(where("_id").in(ids.subList(1, ids.size()))));
+                removed += ids.size() - 1;
+                if (++pending == BATCH_SIZE) {
+                    bulk.execute();
+                    bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, HabitCompletion.class);
+                    pending = 0;
+                }
+            }
+        }
+        if (pending > 0) {
+            bulk.execute();
+        }
+        return removed;
+    }
+
+    private void createDeclaredIndexes() {
+        var mappingContext = mongoTemplate.getConverter().getMappingContext();
+        IndexResolver resolver = IndexResolver.create(mappingContext);
+        for (MongoPersistentEntity<?> entity : mappingContext.getPersistentEntities()) {
+            if (!entity.isAnnotationPresent(org.springframework.data.mongodb.core.mapping.Document.class)) {
+                continue;
+            }
+            IndexOperations indexOps = mongoTemplate.indexOps(entity.getType());
+            resolver.resolveIndexFor(entity.getType()).forEach(indexOps::createIndex);
+        }
+    }
+}
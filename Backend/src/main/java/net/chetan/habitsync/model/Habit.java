@@ -1,12 +1,14 @@
 package net.chetan.habitsync.model;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.Instant;
 import java.time.LocalTime;
 
 @Document(collection = "habits")
+@CompoundIndex(name = "user_updated", def = "{ 'userId': 1, 'updatedAt': 1 }")
 public class Habit {
 
     @Id
@@ -21,6 +23,7 @@ public class Habit {
     private String motivationalQuote;
     private boolean archived = false;
     private Instant createdAt = Instant.now();
+    private Instant updatedAt;
 
     public enum Frequency {
         DAILY, WEEKLY
@@ -101,4 +104,12 @@ public class Habit {
     public void setCreatedAt(Instant createdAt) {
         this.createdAt = createdAt;
     }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
 }
@@ -1,24 +1,39 @@
 package net.chetan.habitsync.model;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 
+import java.time.Instant;
 import java.time.LocalDate;
 
 @Document(collection = "habit_completions")
+@CompoundIndex(name = "habit_date_unique", def = "{ 'habitId': 1, 'date': 1 }", unique = true)
+@CompoundIndex(name = "habit_updated", def = "{ 'habitId': 1, 'updatedAt': 1 }")
+@CompoundIndex(name = "user_date_habit", def = "{ 'userId': 1, 'date': 1, 'habitId': 1 }")
 public class HabitCompletion {
 
     @Id
     private String id;
 
+    private String userId;
     private String habitId;
     private LocalDate date;
     private boolean completed = true;
+    private Instant updatedAt;
 
     public String getId() {
         return id;
     }
 
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
     public String getHabitId() {
         return habitId;
     }
@@ -42,4 +57,12 @@ public class HabitCompletion {
     public void setCompleted(boolean completed) {
         this.completed = completed;
     }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
 }
@@ -0,0 +1,96 @@
+package net.chetan.habitsync.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * One document per habit per year. Bit {@code dayOfYear - 1} is set when that day was
+ * completed, packed into six 64-bit words keyed by word index so that {@code $bit} can
+ * create a missing word on upsert.
+ */
+@Document(collection = "habit_completion_bitmaps")
+@CompoundIndex(name = "habit_year", def = "{ 'habitId': 1, 'year': 1 }")
+public class HabitCompletionBitmap {
+
+    public static final int WORDS = 6;
+
+    @Id
+    private String id;
+
+    private String userId;
+    private String habitId;
+    private int year;
+    private Map<String, Long> words = new HashMap<>();
+    private Instant updatedAt;
+
+    public static String idFor(String habitId, int year) {
+        return habitId + ":" + year;
+    }
+
+    public static int bitFor(LocalDate date) {
+        return date.getDayOfYear() - 1;
+    }
+
+    public static String wordKey(int bit) {
+        return Integer.toString(bit >>> 6);
+    }
+
+    public static long maskFor(int bit) {
+        return 1L << (bit & 63);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public String getHabitId() {
+        return habitId;
+    }
+
+    public void setHabitId(String habitId) {
+        this.habitId = habitId;
+    }
+
+    public int getYear() {
+        return year;
+    }
+
+    public void setYear(int year) {
+        this.year = year;
+    }
+
+    public Map<String, Long> getWords() {
+        return words;
+    }
+
+    public void setWords(Map<String, Long> words) {
+        this.words = words;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    public long word(int index) {
+        return words != null ? words.getOrDefault(Integer.toString(index), 0L) : 0L;
+    }
+
+    public boolean isSet(LocalDate date) {
+        int bit = bitFor(date);
+        return (word(bit >>> 6) & maskFor(bit)) != 0;
+    }
+}
@@ -0,0 +1,88 @@
+package net.chetan.habitsync.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDate;
+
+@Document(collection = "habit_rollups")
+public class HabitRollup {
+
+    @Id
+    private String habitId;
+
+    private int currentStreak;
+    private int longestStreak;
+    private LocalDate lastCompletedDate;
+    private LocalDate weekStart;
+    private int weekCount;
+    private LocalDate monthStart;
+    private int monthCount;
+
+    public HabitRollup() {
+    }
+
+    public HabitRollup(String habitId) {
+        this.habitId = habitId;
+    }
+
+    public String getHabitId() {
+        return habitId;
+    }
+
+    public int getCurrentStreak() {
+        return currentStreak;
+    }
+
+    public void setCurrentStreak(int currentStreak) {
+        this.currentStreak = currentStreak;
+    }
+
+    public int getLongestStreak() {
+        return longestStreak;
+    }
+
+    public void setLongestStreak(int longestStreak) {
+        this.longestStreak = longestStreak;
+    }
+
+    public LocalDate getLastCompletedDate() {
+        return lastCompletedDate;
+    }
+
+    public void setLastCompletedDate(LocalDate lastCompletedDate) {
+        this.lastCompletedDate = lastCompletedDate;
+    }
+
+    public LocalDate getWeekStart() {
+        return weekStart;
+    }
+
+    public void setWeekStart(LocalDate weekStart) {
+        this.weekStart = weekStart;
+    }
+
+    public int getWeekCount() {
+        return weekCount;
+    }
+
+    public void setWeekCount(int weekCount) {
+        this.weekCount = weekCount;
+    }
+
+    public LocalDate getMonthStart() {
+        return monthStart;
+    }
+
+    public void setMonthStart(LocalDate monthStart) {
+        this.monthStart = monthStart;
+    }
+
+    public int getMonthCount() {
+        return monthCount;
+    }
+
+    public void setMonthCount(int monthCount) {
+        this.monthCount = monthCount;
+    }
+}
@@ -0,0 +1,82 @@
+package net.chetan.habitsync.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * Number of completed days of one habit, or of all of a user's habits when {@code habitId} is
+ * null, in one week, month or year. The ID is derived from those fields so updates can upsert
+ * without reading first.
+ */
+@Document(collection = "stats_rollups")
+@CompoundIndex(name = "user_granularity_habit_period",
+        def = "{ 'userId': 1, 'granularity': 1, 'habitId': 1, 'periodStart': 1 }")
+public class StatsRollup {
+
+    @Id
+    private String id;
+
+    private String userId;
+    private String habitId;
+    private Granularity granularity;
+    private LocalDate periodStart;
+    private int count;
+    private Instant updatedAt;
+
+    public enum Granularity {
+        WEEK, MONTH, YEAR;
+
+        public LocalDate start(LocalDate date) {
+            return switch (this) {
+                case WEEK -> date.with(DayOfWeek.MONDAY);
+                case MONTH -> date.withDayOfMonth(1);
+                case YEAR -> date.withDayOfYear(1);
+            };
+        }
+
+        public LocalDate next(LocalDate periodStart) {
+            return switch (this) {
+                case WEEK -> periodStart.plusWeeks(1);
+                case MONTH -> periodStart.plusMonths(1);
+                case YEAR -> periodStart.plusYears(1);
+            };
+        }
+    }
+
+    public static String idFor(String userId, String habitId, Granularity granularity, LocalDate periodStart) {
+        return userId + ":" + (habitId != null ? habitId : "all") + ":" + granularity + ":" + periodStart;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public String getHabitId() {
+        return habitId;
+    }
+
+    public Granularity getGranularity() {
+        return granularity;
+    }
+
+    public LocalDate getPeriodStart() {
+        return periodStart;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+}
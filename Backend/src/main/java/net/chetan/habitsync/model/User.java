@@ -16,6 +16,7 @@ public class User {
     private String password;
     private String provider = "LOCAL";
     private Instant createdAt = Instant.now();
+    private String timeZone;
 
     public String getId() {
         return id;
@@ -60,4 +61,12 @@ public class User {
     public void setCreatedAt(Instant createdAt) {
         this.createdAt = createdAt;
     }
+
+    public String getTimeZone() {
+        return timeZone;
+    }
+
+    public void setTimeZone(String timeZone) {
+        this.timeZone = timeZone;
+    }
 }
@@ -0,0 +1,21 @@
+package net.chetan.habitsync.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+@Document(collection = "user_data_versions")
+public class UserDataVersion {
+
+    @Id
+    private String userId;
+
+    private long version;
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+}
@@ -0,0 +1,84 @@
+package net.chetan.habitsync.monitoring;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Database round trips made on behalf of one unit of work, usually an HTTP request. A scope is
+ * bound to the opening thread and can be carried onto pooled threads with {@link #propagate};
+ * scopes nest, and commands recorded in an inner scope count towards every enclosing one.
+ */
+public final class QueryAccounting implements AutoCloseable {
+
+    private static final ThreadLocal<QueryAccounting> CURRENT = new ThreadLocal<>();
+
+    private final QueryAccounting parent;
+    private final LongAdder commands = new LongAdder();
+    private final LongAdder documents = new LongAdder();
+    private final LongAdder nanos = new LongAdder();
+
+    private QueryAccounting(QueryAccounting parent) {
+        this.parent = parent;
+    }
+
+    public static QueryAccounting open() {
+        QueryAccounting scope = new QueryAccounting(CURRENT.get());
+        CURRENT.set(scope);
+        return scope;
+    }
+
+    public static QueryAccounting current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Runs the task inside the scope that is current when this is called, on whatever thread
+     * ends up executing it.
+     */
+    public static Runnable propagate(Runnable task) {
+        QueryAccounting scope = CURRENT.get();
+        if (scope == null) {
+            return task;
+        }
+        return () -> {
+            QueryAccounting previous = CURRENT.get();
+            CURRENT.set(scope);
+            try {
+                task.run();
+            } finally {
+                CURRENT.set(previous);
+            }
+        };
+    }
+
+    static void record(int returnedDocuments, long elapsedNanos) {
+        for (QueryAccounting scope = CURRENT.get(); scope != null; scope = scope.parent) {
+            scope.commands.increment();
+            scope.documents.add(returnedDocuments);
+            scope.nanos.add(elapsedNanos);
+        }
+    }
+
+    public long commands() {
+        return commands.sum();
+    }
+
+    public long documents() {
+        return documents.sum();
+    }
+
+    public Duration dbTime() {
+        return Duration.ofNanos(nanos.sum());
+    }
+
+    @Override
+    public void close() {
+        CURRENT.set(parent);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d Mongo commands, %d documents, %.2f ms",
+                commands(), documents(), nanos.sum() / 1_000_000.0);
+    }
+}
@@ -0,0 +1,87 @@
+package net.chetan.habitsync.monitoring;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.security.web.util.OnCommittedResponseWrapper;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+/**
+ * Counts the Mongo commands each request makes, including the ones issued while authenticating
+ * it, and logs them: at debug level normally, and as a warning when the handler declares a
+ * {@link QueryBudget} and goes over it. Optionally the totals are also sent back in a
+ * {@code Server-Timing} header. Work completed after an async handler returns is not counted.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class QueryAccountingFilter extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(QueryAccountingFilter.class);
+
+    private final boolean responseHeader;
+
+    public QueryAccountingFilter(@Value("${habitsync.db-accounting.response-header:false}") boolean responseHeader) {
+        this.responseHeader = responseHeader;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain)
+            throws ServletException, IOException {
+
+        try (QueryAccounting scope = QueryAccounting.open()) {
+            HttpServletResponse target = response;
+            if (responseHeader) {
+                // the body is usually flushed before the chain returns, so set it on commit
+                target = new OnCommittedResponseWrapper(response) {
+                    @Override
+                    protected void onResponseCommitted() {
+                        writeHeader(response, scope);
+                    }
+                };
+            }
+            try {
+                filterChain.doFilter(request, target);
+            } finally {
+                if (responseHeader && !response.isCommitted()) {
+                    writeHeader(response, scope);
+                }
+                report(request, response, scope);
+            }
+        }
+    }
+
+    private static void writeHeader(HttpServletResponse response, QueryAccounting scope) {
+        response.setHeader("Server-Timing", String.format("db;dur=%.2f;desc=\"%d commands, %d documents\"",
+                scope.dbTime().toNanos() / 1_000_000.0, scope.commands(), scope.documents()));
+    }
+
+    private static void report(HttpServletRequest request, HttpServletResponse response, QueryAccounting scope) {
+        Integer budget = null;
+        if (request.getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE) instanceof HandlerMethod handler) {
+            QueryBudget declared = handler.getMethodAnnotation(QueryBudget.class);
+            budget = declared != null ? declared.value() : null;
+        }
+        if (budget != null && scope.commands() > budget) {
+            log.warn("{} {} -> {}: {}, over its budget of {}",
+                    request.getMethod(), request.getRequestURI(), response.getStatus(), scope, budget);
+        } else if (log.isDebugEnabled()) {
+            log.debug("{} {} -> {}: {}",
+                    request.getMethod(), request.getRequestURI(), response.getStatus(), scope);
+        }
+    }
+}
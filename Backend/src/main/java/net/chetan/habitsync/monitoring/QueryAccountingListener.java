@@ -0,0 +1,44 @@
+package net.chetan.habitsync.monitoring;
+
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandSucceededEvent;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Attributes every Mongo command to the current {@link QueryAccounting} scope. The sync driver
+ * reports commands on the thread that issued them, so no correlation by request ID is needed.
+ */
+public class QueryAccountingListener implements CommandListener {
+
+    @Override
+    public void commandSucceeded(CommandSucceededEvent event) {
+        if (QueryAccounting.current() != null) {
+            QueryAccounting.record(returnedDocuments(event.getResponse()),
+                    event.getElapsedTime(TimeUnit.NANOSECONDS));
+        }
+    }
+
+    @Override
+    public void commandFailed(CommandFailedEvent event) {
+        if (QueryAccounting.current() != null) {
+            QueryAccounting.record(0, event.getElapsedTime(TimeUnit.NANOSECONDS));
+        }
+    }
+
+    private static int returnedDocuments(BsonDocument response) {
+        BsonValue cursor = response.get("cursor");
+        if (cursor != null && cursor.isDocument()) {
+            BsonValue batch = cursor.asDocument().containsKey("firstBatch")
+                    ? cursor.asDocument().get("firstBatch")
+                    : cursor.asDocument().get("nextBatch");
+            return batch != null && batch.isArray() ? batch.asArray().size() : 0;
+        }
+        // findAndModify
+        BsonValue value = response.get("value");
+        return value != null && value.isDocument() ? 1 : 0;
+    }
+}
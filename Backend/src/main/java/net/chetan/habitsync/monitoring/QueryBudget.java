@@ -0,0 +1,17 @@
+package net.chetan.habitsync.monitoring;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * The most Mongo commands one call of the annotated endpoint may issue, authentication
+ * included. The budget must hold no matter how many habits or completions the user has.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface QueryBudget {
+
+    int value();
+}
@@ -0,0 +1,18 @@
+package net.chetan.habitsync.reminder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Stand-in sender used until a real delivery channel is configured.
+ */
+public class LoggingReminderSender implements ReminderSender {
+
+    private static final Logger log = LoggerFactory.getLogger(LoggingReminderSender.class);
+
+    @Override
+    public void send(Reminder reminder) {
+        log.info("Reminder for user {}: {} (habit {}, due {})",
+                reminder.userId(), reminder.habitName(), reminder.habitId(), reminder.dueAt());
+    }
+}
@@ -0,0 +1,13 @@
+package net.chetan.habitsync.reminder;
+
+import java.time.Instant;
+
+/**
+ * A reminder that is due. {@code habitId} is null for a test notification.
+ */
+public record Reminder(
+        String habitId,
+        String userId,
+        String habitName,
+        Instant dueAt
+) {}
@@ -0,0 +1,312 @@
+package net.chetan.habitsync.reminder;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import net.chetan.habitsync.model.Habit;
+import net.chetan.habitsync.model.User;
+import net.chetan.habitsync.security.UserCache;
+import net.chetan.habitsync.service.TimeZones;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Fires habit reminders at {@link Habit#getReminderTime()} in each user's time zone. Active
+ * habits with a reminder are indexed once at startup into a {@link TimingWheel} by the minute
+ * of their next occurrence; after that the index follows habit saves and deletes, and each
+ * minute only the reminders that came due are sent and rescheduled for the next day.
+ * <p>
+ * Ticks run on a thread of their own rather than on Spring's shared scheduler, so the nightly
+ * rollup rebuilds cannot hold reminders back. A tick only advances the wheel; the due reminders
+ * go to a small pool of send threads with a bounded queue, so a slow {@link ReminderSender}
+ * cannot delay the next minute, and reminders that find the queue full are dropped and counted.
+ * Each instance with reminders enabled sends all of them, so with several instances enable it
+ * on one only.
+ */
+@Component
+public class ReminderScheduler extends AbstractMongoEventListener<Habit> {
+
+    private static final Logger log = LoggerFactory.getLogger(ReminderScheduler.class);
+    static final int LOAD_BATCH = 1000;
+
+    private final MongoTemplate mongoTemplate;
+    private final UserCache userCache;
+    private final ReminderSender sender;
+    private final boolean enabled;
+    private final Counter sent;
+    private final Counter failed;
+    private final Counter rejected;
+    private final Executor sendExecutor;
+
+    /** The entry each habit is currently scheduled under; wheel entries not in here are stale. */
+    private final Map<String, Entry> scheduled = new ConcurrentHashMap<>();
+    private final TimingWheel<Entry> wheel = new TimingWheel<>(epochMinute(Instant.now()));
+    private final ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "reminder-tick");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private record Entry(String habitId, String userId, String habitName, LocalTime time, ZoneId zone) {}
+
+    @Autowired
+    public ReminderScheduler(MongoTemplate mongoTemplate,
+                             UserCache userCache,
+                             ReminderSender sender,
+                             MeterRegistry meterRegistry,
+                             @Value("${habitsync.reminders.enabled:true}") boolean enabled,
+                             @Value("${habitsync.reminders.send-threads:4}") int sendThreads,
+                             @Value("${habitsync.reminders.send-queue-capacity:10000}") int sendQueueCapacity) {
+        this(mongoTemplate, userCache, sender, meterRegistry, enabled, sendPool(sendThreads, sendQueueCapacity));
+        ThreadPoolExecutor pool = (ThreadPoolExecutor) sendExecutor;
+        Gauge.builder("habitsync.reminders.queue.depth", pool, p -> p.getQueue().size()).register(meterRegistry);
+    }
+
+    ReminderScheduler(MongoTemplate mongoTemplate,
+                      UserCache userCache,
+                      ReminderSender sender,
+                      MeterRegistry meterRegistry,
+                      boolean enabled,
+                      Executor sendExecutor) {
+        this.mongoTemplate = mongoTemplate;
+        this.userCache = userCache;
+        this.sender = sender;
+        this.enabled = enabled;
+        this.sendExecutor = sendExecutor;
+        this.sent = Counter.builder("habitsync.reminders.sent").register(meterRegistry);
+        this.failed = Counter.builder("habitsync.reminders.failed").register(meterRegistry);
+        this.rejected = Counter.builder("habitsync.reminders.rejected").register(meterRegistry);
+        Gauge.builder("habitsync.reminders.scheduled", scheduled, Map::size).register(meterRegistry);
+    }
+
+    private static ThreadPoolExecutor sendPool(int threads, int queueCapacity) {
+        AtomicInteger threadCount = new AtomicInteger();
+        return new ThreadPoolExecutor(
+                threads, threads,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread t = new Thread(r, "reminder-send-" + threadCount.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Streams the active habits that have a reminder, sorted by user, and looks up the time
+     * zones of each batch of users with one query.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+        Query habits = query(where("archived").is(false).and("reminderTime").ne(null))
+                .with(Sort.by("userId"));
+        habits.fields().include("userId", "name", "reminderTime");
+        List<Habit> batch = new ArrayList<>(LOAD_BATCH);
+        try (Stream<Habit> stream = mongoTemplate.stream(habits, Habit.class)) {
+            stream.forEach(habit -> {
+                batch.add(habit);
+                if (batch.size() == LOAD_BATCH) {
+                    scheduleAll(batch);
+                    batch.clear();
+                }
+            });
+        }
+        scheduleAll(batch);
+        log.info("Scheduled {} habit reminders", scheduled.size());
+        scheduleNextTick();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        ticker.shutdownNow();
+        if (sendExecutor instanceof ExecutorService pool) {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Runs {@link #tick} at the start of the next minute. Each tick schedules the one after it
+     * from the wall clock, so ticks do not drift, and the wheel catches up on any minute missed.
+     */
+    private void scheduleNextTick() {
+        if (ticker.isShutdown()) {
+            return;
+        }
+        long delay = 60_000 - System.currentTimeMillis() % 60_000;
+        ticker.schedule(() -> {
+            try {
+                tick();
+            } catch (RuntimeException e) {
+                log.warn("Reminder tick failed", e);
+            } finally {
+                scheduleNextTick();
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    public void tick() {
+        tick(Instant.now());
+    }
+
+    void tick(Instant now) {
+        if (!enabled) {
+            return;
+        }
+        List<Entry> due;
+        synchronized (wheel) {
+            due = wheel.advanceTo(epochMinute(now));
+        }
+        for (Entry entry : due) {
+            if (scheduled.get(entry.habitId()) != entry) {
+                continue;
+            }
+            Instant dueAt = Instant.ofEpochSecond(epochMinute(now) * 60);
+            Reminder reminder = new Reminder(entry.habitId(), entry.userId(), entry.habitName(), dueAt);
+            try {
+                sendExecutor.execute(() -> send(reminder));
+            } catch (RejectedExecutionException e) {
+                rejected.increment();
+                log.warn("Reminder queue full, dropped the reminder for habit {}", entry.habitId());
+            }
+            // still in the map: re-arm for tomorrow without racing a concurrent update or delete
+            enqueue(entry);
+        }
+    }
+
+    private void send(Reminder reminder) {
+        try {
+            sender.send(reminder);
+            sent.increment();
+        } catch (RuntimeException e) {
+            failed.increment();
+            log.warn("Sending reminder for habit {} failed", reminder.habitId(), e);
+        }
+    }
+
+    /**
+     * Sends a reminder to the user straight away, to check that delivery works.
+     */
+    public void sendTest(User user) {
+        sender.send(new Reminder(null, user.getId(), "Test notification", Instant.now()));
+    }
+
+    /**
+     * Moves the reminders of the user's active habits to the user's current time zone.
+     */
+    public void rescheduleUser(User user) {
+        if (!enabled) {
+            return;
+        }
+        ZoneId zone = TimeZones.zoneOf(user);
+        mongoTemplate.find(query(where("userId").is(user.getId()).and("archived").is(false)), Habit.class)
+                .forEach(habit -> update(habit, zone));
+    }
+
+    @Override
+    public void onAfterSave(AfterSaveEvent<Habit> event) {
+        if (enabled) {
+            Habit habit = event.getSource();
+            update(habit, userCache.get(habit.getUserId()).map(TimeZones::zoneOf)
+                    .orElse(ZoneId.systemDefault()));
+        }
+    }
+
+    @Override
+    public void onAfterDelete(AfterDeleteEvent<Habit> event) {
+        Document source = event.getSource();
+        Object id = source.get("_id");
+        if (id != null) {
+            scheduled.remove(id.toString());
+        }
+    }
+
+    private void scheduleAll(List<Habit> habits) {
+        if (habits.isEmpty()) {
+            return;
+        }
+        Query users = query(where("_id").in(habits.stream().map(Habit::getUserId).distinct().toList()));
+        users.fields().include("timeZone");
+        Map<String, ZoneId> zones = new HashMap<>();
+        mongoTemplate.find(users, User.class).forEach(u -> zones.put(u.getId(), TimeZones.zoneOf(u)));
+        habits.forEach(h -> update(h, zones.getOrDefault(h.getUserId(), ZoneId.systemDefault())));
+    }
+
+    private void update(Habit habit, ZoneId zone) {
+        if (habit.isArchived() || habit.getReminderTime() == null) {
+            scheduled.remove(habit.getId());
+            return;
+        }
+        schedule(new Entry(habit.getId(), habit.getUserId(), habit.getName(), habit.getReminderTime(), zone));
+    }
+
+    private void schedule(Entry entry) {
+        scheduled.put(entry.habitId(), entry);
+        enqueue(entry);
+    }
+
+    private void enqueue(Entry entry) {
+        synchronized (wheel) {
+            long after = wheel.currentMinute();
+            wheel.schedule(entry, epochMinute(nextOccurrence(entry.time(), entry.zone(), after)));
+        }
+    }
+
+    /**
+     * The first time the reminder is due after the given minute. Around daylight saving changes
+     * a local time that does not exist fires at the first valid time after it.
+     */
+    static Instant nextOccurrence(LocalTime time, ZoneId zone, long afterMinute) {
+        Instant after = Instant.ofEpochSecond(afterMinute * 60);
+        LocalTime at = time.withSecond(0).withNano(0);
+        ZonedDateTime next = ZonedDateTime.of(LocalDate.ofInstant(after, zone), at, zone);
+        if (!next.toInstant().isAfter(after)) {
+            next = ZonedDateTime.of(next.toLocalDate().plusDays(1), at, zone);
+        }
+        return next.toInstant();
+    }
+
+    static long epochMinute(Instant instant) {
+        return Math.floorDiv(instant.getEpochSecond(), 60);
+    }
+}
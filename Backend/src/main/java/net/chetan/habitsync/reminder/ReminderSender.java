@@ -0,0 +1,11 @@
+package net.chetan.habitsync.reminder;
+
+/**
+ * Delivers reminders, for example as push notifications. Called once per due reminder from a
+ * small pool of send threads, so a slow delivery holds back other reminders but not the
+ * scheduler.
+ */
+public interface ReminderSender {
+
+    void send(Reminder reminder);
+}
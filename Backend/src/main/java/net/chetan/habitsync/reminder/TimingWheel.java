@@ -0,0 +1,102 @@
+package net.chetan.habitsync.reminder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Two-level hierarchical timing wheel over epoch minutes. The minute wheel holds what is due in
+ * the current hour, one slot per minute; the hour wheel holds what is due in the following
+ * {@link #HOURS} hours, one slot per hour. Each new hour the matching hour slot is spread over
+ * the minute wheel, so advancing touches only the entries that are due and the one hour slot
+ * being cascaded, however many entries are scheduled.
+ * <p>
+ * Not thread-safe; callers synchronize.
+ */
+class TimingWheel<T> {
+
+    static final int HOURS = 64;
+
+    private final List<List<Slot<T>>> minutes = new ArrayList<>(60);
+    private final List<List<Slot<T>>> hours = new ArrayList<>(HOURS);
+    private long currentMinute;
+    private long size;
+
+    private record Slot<T>(T value, long dueMinute) {}
+
+    TimingWheel(long currentMinute) {
+        this.currentMinute = currentMinute;
+        for (int i = 0; i < 60; i++) {
+            minutes.add(new ArrayList<>());
+        }
+        for (int i = 0; i < HOURS; i++) {
+            hours.add(new ArrayList<>());
+        }
+    }
+
+    long currentMinute() {
+        return currentMinute;
+    }
+
+    long size() {
+        return size;
+    }
+
+    /**
+     * Schedules {@code value} for {@code dueMinute}. Anything due at or before the current
+     * minute fires on the next advance.
+     */
+    void schedule(T value, long dueMinute) {
+        long due = Math.max(dueMinute, currentMinute + 1);
+        long hourDelta = due / 60 - currentMinute / 60;
+        if (hourDelta >= HOURS) {
+            throw new IllegalArgumentException("Due more than " + HOURS + " hours ahead");
+        }
+        Slot<T> slot = new Slot<>(value, due);
+        if (hourDelta == 0) {
+            minutes.get((int) (due % 60)).add(slot);
+        } else {
+            hours.get((int) ((due / 60) % HOURS)).add(slot);
+        }
+        size++;
+    }
+
+    /**
+     * Moves the wheel to {@code minute} and returns everything that came due on the way.
+     */
+    List<T> advanceTo(long minute) {
+        List<T> due = new ArrayList<>();
+        if (minute - currentMinute >= HOURS * 60L) {
+            // nothing is scheduled a full turn of the hour wheel ahead, so after such a pause
+            // everything is due
+            drainInto(minutes, due);
+            drainInto(hours, due);
+            size = 0;
+            currentMinute = minute;
+            return due;
+        }
+        for (long m = currentMinute + 1; m <= minute; m++) {
+            if (m % 60 == 0) {
+                List<Slot<T>> hour = hours.get((int) ((m / 60) % HOURS));
+                for (Slot<T> slot : hour) {
+                    minutes.get((int) (slot.dueMinute() % 60)).add(slot);
+                }
+                hour.clear();
+            }
+            List<Slot<T>> slots = minutes.get((int) (m % 60));
+            for (Slot<T> slot : slots) {
+                due.add(slot.value());
+            }
+            size -= slots.size();
+            slots.clear();
+        }
+        currentMinute = Math.max(currentMinute, minute);
+        return due;
+    }
+
+    private static <T> void drainInto(List<List<Slot<T>>> wheel, List<T> due) {
+        for (List<Slot<T>> slots : wheel) {
+            slots.forEach(slot -> due.add(slot.value()));
+            slots.clear();
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package net.chetan.habitsync.repository;
+
+import net.chetan.habitsync.model.HabitCompletionBitmap;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+public interface HabitCompletionBitmapRepository extends MongoRepository<HabitCompletionBitmap, String> {
+
+    @Query("{ 'habitId': { $in: ?0 }, 'year': { $gte: ?1, $lte: ?2 } }")
+    List<HabitCompletionBitmap> findInYears(Collection<String> habitIds, int fromYear, int toYear);
+
+    List<HabitCompletionBitmap> findByHabitIdInAndYearGreaterThanEqual(Collection<String> habitIds, int year);
+
+    @Query("{ 'habitId': { $in: ?0 }, 'updatedAt': { $gte: ?1 } }")
+    List<HabitCompletionBitmap> findUpdatedSince(Collection<String> habitIds, Instant since);
+
+    List<HabitCompletionBitmap> findByHabitIdIn(Collection<String> habitIds);
+}
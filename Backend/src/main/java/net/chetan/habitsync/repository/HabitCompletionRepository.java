@@ -2,14 +2,46 @@ package net.chetan.habitsync.repository;
 
 import net.chetan.habitsync.model.HabitCompletion;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 
+import java.time.Instant;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
-import java.util.Optional;
 
-public interface HabitCompletionRepository extends MongoRepository<HabitCompletion, String> {
+public interface HabitCompletionRepository extends MongoRepository<HabitCompletion, String>,
+        HabitCompletionRepositoryCustom {
 
-    Optional<HabitCompletion> findByHabitIdAndDate(String habitId, LocalDate date);
+    @Query(value = "{ 'habitId': { $in: ?0 }, 'completed': true, 'date': { $gte: ?1, $lte: ?2 } }",
+            fields = "{ 'habitId': 1, 'date': 1 }",
+            sort = "{ 'date': -1 }")
+    List<HabitCompletion> findCompletedInRange(Collection<String> habitIds, LocalDate start, LocalDate end);
 
-    List<HabitCompletion> findByHabitIdAndDateBetween(String habitId, LocalDate start, LocalDate end);
+    /**
+     * All of a user's completed days in the window, from one scan of the
+     * {@code (userId, date, habitId)} index. Rows written before the userId backfill are missed.
+     */
+    @Query(value = "{ 'userId': ?0, 'completed': true, 'date': { $gte: ?1, $lte: ?2 } }",
+            fields = "{ 'habitId': 1, 'date': 1 }")
+    List<HabitCompletion> findCompletedByUserInRange(String userId, LocalDate start, LocalDate end);
+
+    @Query(value = "{ 'habitId': { $in: ?0 }, 'updatedAt': { $gte: ?1 } }",
+            fields = "{ 'habitId': 1, 'date': 1, 'completed': 1 }")
+    List<HabitCompletion> findUpdatedSince(Collection<String> habitIds, Instant since);
+
+    @Query(value = "{ 'userId': ?0, 'habitId': { $in: ?1 }, 'updatedAt': { $gte: ?2 } }",
+            fields = "{ 'habitId': 1, 'date': 1, 'completed': 1 }")
+    List<HabitCompletion> findUpdatedSinceForUser(String userId, Collection<String> habitIds, Instant since);
+
+    @Query(value = "{ 'habitId': { $in: ?0 }, 'completed': true }",
+            fields = "{ 'habitId': 1, 'date': 1 }")
+    List<HabitCompletion> findAllCompleted(Collection<String> habitIds);
+
+    @Query(value = "{ 'userId': ?0, 'habitId': { $in: ?1 }, 'completed': true }",
+            fields = "{ 'habitId': 1, 'date': 1 }")
+    List<HabitCompletion> findAllCompletedForUser(String userId, Collection<String> habitIds);
+
+    @Query(value = "{ 'habitId': { $in: ?0 }, 'completed': true, 'date': { $gte: ?1 } }",
+            fields = "{ 'habitId': 1, 'date': 1 }")
+    List<HabitCompletion> findCompletedSince(Collection<String> habitIds, LocalDate since);
 }
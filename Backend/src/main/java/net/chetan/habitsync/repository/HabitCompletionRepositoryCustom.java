@@ -0,0 +1,21 @@
+package net.chetan.habitsync.repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+public interface HabitCompletionRepositoryCustom {
+
+    record CompletionCounts(String habitId, long total, long recent) {}
+
+    /**
+     * Counts completed days per habit in {@code [windowStart, end]}, plus the subset falling
+     * in {@code [recentStart, end]}, with a single server-side aggregation. A non-null
+     * {@code userId} also restricts the match to that user, so it can be routed to one shard.
+     */
+    List<CompletionCounts> countCompleted(String userId,
+                                          Collection<String> habitIds,
+                                          LocalDate windowStart,
+                                          LocalDate recentStart,
+                                          LocalDate end);
+}
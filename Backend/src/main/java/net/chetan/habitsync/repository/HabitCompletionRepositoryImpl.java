@@ -0,0 +1,68 @@
+package net.chetan.habitsync.repository;
+
+import net.chetan.habitsync.model.HabitCompletion;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.ComparisonOperators;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.group;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.match;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.newAggregation;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.project;
+
+public class HabitCompletionRepositoryImpl implements HabitCompletionRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    public HabitCompletionRepositoryImpl(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public List<CompletionCounts> countCompleted(String userId,
+                                                 Collection<String> habitIds,
+                                                 LocalDate windowStart,
+                                                 LocalDate recentStart,
+                                                 LocalDate end) {
+        if (habitIds.isEmpty()) {
+            return List.of();
+        }
+        Aggregation aggregation = countCompletedAggregation(
+                mongoTemplate.getConverter(), userId, habitIds, windowStart, recentStart, end);
+        return mongoTemplate
+                .aggregate(aggregation, HabitCompletion.class, CompletionCounts.class)
+                .getMappedResults();
+    }
+
+    static Aggregation countCompletedAggregation(MongoConverter converter,
+                                                 String userId,
+                                                 Collection<String> habitIds,
+                                                 LocalDate windowStart,
+                                                 LocalDate recentStart,
+                                                 LocalDate end) {
+        // $cond values bypass query mapping, so convert the date the same way $match does
+        Object recentStartValue = converter.convertToMongoType(recentStart);
+        Criteria owner = userId != null
+                ? Criteria.where("userId").is(userId).and("habitId").in(habitIds)
+                : Criteria.where("habitId").in(habitIds);
+        return newAggregation(
+                match(owner
+                        .and("completed").is(true)
+                        .and("date").gte(windowStart).lte(end)),
+                group("habitId")
+                        .count().as("total")
+                        .sum(ConditionalOperators
+                                .when(ComparisonOperators.valueOf("date").greaterThanEqualToValue(recentStartValue))
+                                .then(1)
+                                .otherwise(0)).as("recent"),
+                project("total", "recent").and("habitId").previousOperation()
+        );
+    }
+}
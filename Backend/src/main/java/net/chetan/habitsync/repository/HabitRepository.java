@@ -2,9 +2,19 @@ package net.chetan.habitsync.repository;
 
 import net.chetan.habitsync.model.Habit;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 
+import java.time.Instant;
 import java.util.List;
 
 public interface HabitRepository extends MongoRepository<Habit, String> {
+
     List<Habit> findByUserIdAndArchivedFalse(String userId);
+
+    List<Habit> findByUserIdOrderByCreatedAtAsc(String userId);
+
+    @Query(value = "{ 'userId': ?0, 'archived': false }", fields = "{ '_id': 1 }")
+    List<Habit> findIdsByUserIdAndArchivedFalse(String userId);
+
+    List<Habit> findByUserIdAndUpdatedAtGreaterThanEqual(String userId, Instant since);
 }
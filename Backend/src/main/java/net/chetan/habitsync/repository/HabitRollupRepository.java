@@ -0,0 +1,7 @@
+package net.chetan.habitsync.repository;
+
+import net.chetan.habitsync.model.HabitRollup;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+public interface HabitRollupRepository extends MongoRepository<HabitRollup, String> {
+}
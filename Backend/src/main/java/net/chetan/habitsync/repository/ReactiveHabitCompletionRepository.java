@@ -0,0 +1,16 @@
+package net.chetan.habitsync.repository;
+
+import net.chetan.habitsync.model.HabitCompletion;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import reactor.core.publisher.Flux;
+
+import java.time.LocalDate;
+
+public interface ReactiveHabitCompletionRepository extends ReactiveMongoRepository<HabitCompletion, String>,
+        ReactiveHabitCompletionRepositoryCustom {
+
+    @Query(value = "{ 'userId': ?0, 'completed': true, 'date': { $gte: ?1, $lte: ?2 } }",
+            fields = "{ 'habitId': 1, 'date': 1 }")
+    Flux<HabitCompletion> findCompletedByUserInRange(String userId, LocalDate start, LocalDate end);
+}
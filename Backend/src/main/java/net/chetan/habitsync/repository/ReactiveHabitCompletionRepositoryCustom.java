@@ -0,0 +1,16 @@
+package net.chetan.habitsync.repository;
+
+import net.chetan.habitsync.repository.HabitCompletionRepositoryCustom.CompletionCounts;
+import reactor.core.publisher.Flux;
+
+import java.time.LocalDate;
+import java.util.Collection;
+
+public interface ReactiveHabitCompletionRepositoryCustom {
+
+    Flux<CompletionCounts> countCompleted(String userId,
+                                          Collection<String> habitIds,
+                                          LocalDate windowStart,
+                                          LocalDate recentStart,
+                                          LocalDate end);
+}
@@ -0,0 +1,34 @@
+package net.chetan.habitsync.repository;
+
+import net.chetan.habitsync.model.HabitCompletion;
+import net.chetan.habitsync.repository.HabitCompletionRepositoryCustom.CompletionCounts;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import reactor.core.publisher.Flux;
+
+import java.time.LocalDate;
+import java.util.Collection;
+
+public class ReactiveHabitCompletionRepositoryImpl implements ReactiveHabitCompletionRepositoryCustom {
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    public ReactiveHabitCompletionRepositoryImpl(ReactiveMongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public Flux<CompletionCounts> countCompleted(String userId,
+                                                 Collection<String> habitIds,
+                                                 LocalDate windowStart,
+                                                 LocalDate recentStart,
+                                                 LocalDate end) {
+        if (habitIds.isEmpty()) {
+            return Flux.empty();
+        }
+        return mongoTemplate.aggregate(
+                HabitCompletionRepositoryImpl.countCompletedAggregation(
+                        mongoTemplate.getConverter(), userId, habitIds, windowStart, recentStart, end),
+                HabitCompletion.class,
+                CompletionCounts.class);
+    }
+}
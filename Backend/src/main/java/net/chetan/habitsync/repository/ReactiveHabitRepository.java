@@ -0,0 +1,9 @@
+package net.chetan.habitsync.repository;
+
+import net.chetan.habitsync.model.Habit;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import reactor.core.publisher.Flux;
+
+public interface ReactiveHabitRepository extends ReactiveMongoRepository<Habit, String> {
+    Flux<Habit> findByUserIdAndArchivedFalse(String userId);
+}
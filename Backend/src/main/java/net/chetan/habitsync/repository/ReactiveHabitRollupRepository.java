@@ -0,0 +1,7 @@
+package net.chetan.habitsync.repository;
+
+import net.chetan.habitsync.model.HabitRollup;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+
+public interface ReactiveHabitRollupRepository extends ReactiveMongoRepository<HabitRollup, String> {
+}
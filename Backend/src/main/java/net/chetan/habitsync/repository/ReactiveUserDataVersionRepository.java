@@ -0,0 +1,7 @@
+package net.chetan.habitsync.repository;
+
+import net.chetan.habitsync.model.UserDataVersion;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+
+public interface ReactiveUserDataVersionRepository extends ReactiveMongoRepository<UserDataVersion, String> {
+}
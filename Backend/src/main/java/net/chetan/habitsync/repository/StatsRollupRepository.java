@@ -0,0 +1,21 @@
+package net.chetan.habitsync.repository;
+
+import net.chetan.habitsync.model.StatsRollup;
+import net.chetan.habitsync.model.StatsRollup.Granularity;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface StatsRollupRepository extends MongoRepository<StatsRollup, String> {
+
+    /**
+     * Periods of one habit, or of the user's total when {@code habitId} is null, starting in
+     * {@code [from, to]}.
+     */
+    @Query(value = "{ 'userId': ?0, 'granularity': ?1, 'habitId': ?2, 'periodStart': { $gte: ?3, $lte: ?4 } }",
+            fields = "{ 'periodStart': 1, 'count': 1 }",
+            sort = "{ 'periodStart': 1 }")
+    List<StatsRollup> findPeriods(String userId, Granularity granularity, String habitId, LocalDate from, LocalDate to);
+}
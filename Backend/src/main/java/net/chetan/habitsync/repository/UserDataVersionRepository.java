@@ -0,0 +1,7 @@
+package net.chetan.habitsync.repository;
+
+import net.chetan.habitsync.model.UserDataVersion;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+public interface UserDataVersionRepository extends MongoRepository<UserDataVersion, String> {
+}
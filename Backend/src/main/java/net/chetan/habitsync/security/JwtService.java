@@ -1,43 +1,150 @@
 package net.chetan.habitsync.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import net.chetan.habitsync.model.User;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class JwtService {
 
+    static final String USER_ID_CLAIM = "uid";
+
     private final Key key;
     private final long expirationMs;
+    private final JwtParser parser;
+    private final Cache<String, VerifiedToken> verified;
+    private final Timer cachedTimer;
+    private final Timer verifiedTimer;
+    private final Timer invalidTimer;
 
-    public JwtService(@Value("${jwt.secret}") String secret,
-                      @Value("${jwt.expiration-ms}") long expirationMs) {
+    public JwtService(MeterRegistry meterRegistry,
+                      @Value("${jwt.secret}") String secret,
+                      @Value("${jwt.expiration-ms}") long expirationMs,
+                      @Value("${jwt.cache.max-size:100000}") long cacheSize) {
         this.key = Keys.hmacShaKeyFor(secret.getBytes());
         this.expirationMs = expirationMs;
+        this.parser = Jwts.parserBuilder()
+                .setSigningKey(key)
+                .build();
+        this.verified = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfter(new UntilTokenExpiry())
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, verified, "jwt.verified");
+        this.cachedTimer = verifyTimer(meterRegistry, "cached");
+        this.verifiedTimer = verifyTimer(meterRegistry, "verified");
+        this.invalidTimer = verifyTimer(meterRegistry, "invalid");
+    }
+
+    private static Timer verifyTimer(MeterRegistry meterRegistry, String result) {
+        return Timer.builder("habitsync.jwt.verify")
+                .tag("result", result)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
     }
 
-    public String generateToken(String email) {
+    public record TokenClaims(String userId, String email) {}
+
+    private record VerifiedToken(TokenClaims claims, long expiresAtMillis) {}
+
+    public String generateToken(User user) {
         Date now = new Date();
         Date expiry = new Date(now.getTime() + expirationMs);
         return Jwts.builder()
-                .setSubject(email)
+                .setSubject(user.getEmail())
+                .claim(USER_ID_CLAIM, user.getId())
                 .setIssuedAt(now)
                 .setExpiration(expiry)
                 .signWith(key, SignatureAlgorithm.HS256)
                 .compact();
     }
 
-    public String extractEmail(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(key)
-                .build()
-                .parseClaimsJws(token)
-                .getBody()
-                .getSubject();
+    /**
+     * Returns the claims of a token, verifying the signature only the first time the token is
+     * seen. Entries are keyed by a SHA-256 of the token so raw tokens are not retained, and
+     * expire no later than the token itself.
+     */
+    public TokenClaims parse(String token) {
+        long start = System.nanoTime();
+        String cacheKey = hash(token);
+        VerifiedToken cached = verified.getIfPresent(cacheKey);
+        if (cached != null && cached.expiresAtMillis() > System.currentTimeMillis()) {
+            cachedTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return cached.claims();
+        }
+        VerifiedToken fresh;
+        try {
+            fresh = verifyToken(token);
+        } catch (RuntimeException e) {
+            invalidTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw e;
+        }
+        verified.put(cacheKey, fresh);
+        verifiedTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return fresh.claims();
+    }
+
+    TokenClaims verify(String token) {
+        return verifyToken(token).claims();
+    }
+
+    private VerifiedToken verifyToken(String token) {
+        Claims claims = parser.parseClaimsJws(token).getBody();
+        long expiresAt = claims.getExpiration() != null
+                ? claims.getExpiration().getTime()
+                : System.currentTimeMillis() + expirationMs;
+        return new VerifiedToken(
+                new TokenClaims(claims.get(USER_ID_CLAIM, String.class), claims.getSubject()),
+                expiresAt);
+    }
+
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static class UntilTokenExpiry implements Expiry<String, VerifiedToken> {
+
+        @Override
+        public long expireAfterCreate(String key, VerifiedToken value, long currentTime) {
+            long remainingMs = value.expiresAtMillis() - System.currentTimeMillis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(remainingMs, 0));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, VerifiedToken value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, VerifiedToken value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
     }
 }
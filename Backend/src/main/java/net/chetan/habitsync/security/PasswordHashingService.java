@@ -0,0 +1,110 @@
+package net.chetan.habitsync.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs BCrypt on a small dedicated pool so a login spike cannot occupy every request thread.
+ * When the pool and its queue are full, work is rejected immediately with a 503 instead of
+ * queueing behind other requests.
+ */
+@Service
+public class PasswordHashingService {
+
+    private final PasswordEncoder passwordEncoder;
+    private final int strength;
+    private final ThreadPoolExecutor executor;
+    private final Timer encodeTimer;
+    private final Timer matchTimer;
+    private final Counter rejected;
+
+    public PasswordHashingService(PasswordEncoder passwordEncoder,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${habitsync.security.bcrypt.strength:10}") int strength,
+                                  @Value("${habitsync.security.bcrypt.threads:2}") int threads,
+                                  @Value("${habitsync.security.bcrypt.queue-capacity:64}") int queueCapacity) {
+        this.passwordEncoder = passwordEncoder;
+        this.strength = strength;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                threads, threads,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread t = new Thread(r, "password-hash-" + threadCount.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        this.encodeTimer = Timer.builder("habitsync.password.hash")
+                .tag("operation", "encode")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.matchTimer = Timer.builder("habitsync.password.hash")
+                .tag("operation", "matches")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.rejected = Counter.builder("habitsync.password.rejected")
+                .register(meterRegistry);
+        Gauge.builder("habitsync.password.queue.depth", executor, e -> e.getQueue().size())
+                .register(meterRegistry);
+        Gauge.builder("habitsync.password.active", executor, ThreadPoolExecutor::getActiveCount)
+                .register(meterRegistry);
+    }
+
+    public CompletableFuture<String> encode(String rawPassword) {
+        return submit(encodeTimer, () -> passwordEncoder.encode(rawPassword));
+    }
+
+    public CompletableFuture<Boolean> matches(String rawPassword, String encodedPassword) {
+        return submit(matchTimer, () -> passwordEncoder.matches(rawPassword, encodedPassword));
+    }
+
+    /**
+     * True when the hash was produced with a different cost than the one configured now.
+     */
+    public boolean needsRehash(String encodedPassword) {
+        // BCrypt hashes look like $2a$10$<salt+hash>
+        if (encodedPassword == null || encodedPassword.length() < 7 || encodedPassword.charAt(3) != '$') {
+            return false;
+        }
+        try {
+            return Integer.parseInt(encodedPassword.substring(4, 6)) != strength;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private <T> CompletableFuture<T> submit(Timer timer, Supplier<T> task) {
+        try {
+            return CompletableFuture.supplyAsync(() -> timer.record(task), executor);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            return CompletableFuture.failedFuture(new ResponseStatusException(
+                    HttpStatus.SERVICE_UNAVAILABLE, "Too many sign-in requests, try again shortly"));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
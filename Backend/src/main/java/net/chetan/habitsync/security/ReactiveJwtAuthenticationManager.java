@@ -0,0 +1,58 @@
+package net.chetan.habitsync.security;
+
+import net.chetan.habitsync.model.User;
+import net.chetan.habitsync.security.JwtService.TokenClaims;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Reactive counterpart of {@link JwtAuthenticationFilter}: the bearer token arrives as the
+ * credentials of an unauthenticated token and the {@link User} becomes the principal.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveJwtAuthenticationManager implements ReactiveAuthenticationManager {
+
+    private final JwtService jwtService;
+    private final UserCache userCache;
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    public ReactiveJwtAuthenticationManager(JwtService jwtService,
+                                            UserCache userCache,
+                                            ReactiveMongoTemplate mongoTemplate) {
+        this.jwtService = jwtService;
+        this.userCache = userCache;
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public Mono<Authentication> authenticate(Authentication authentication) {
+        return Mono.fromCallable(() -> jwtService.parse((String) authentication.getCredentials()))
+                .onErrorMap(e -> new BadCredentialsException("Invalid token", e))
+                .flatMap(this::resolveUser)
+                .switchIfEmpty(Mono.error(new BadCredentialsException("User not found")))
+                .map(user -> UsernamePasswordAuthenticationToken.authenticated(
+                        user, null, AuthorityUtils.createAuthorityList("USER")));
+    }
+
+    private Mono<User> resolveUser(TokenClaims claims) {
+        if (claims.userId() == null) {
+            // tokens issued before the uid claim existed
+            return mongoTemplate.findOne(query(where("email").is(claims.email())), User.class);
+        }
+        return Mono.justOrEmpty(userCache.getIfPresent(claims.userId()))
+                .switchIfEmpty(mongoTemplate.findById(claims.userId(), User.class)
+                        .doOnNext(userCache::put))
+                .filter(user -> claims.email().equals(user.getEmail()));
+    }
+}
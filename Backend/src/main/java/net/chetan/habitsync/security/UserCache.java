@@ -0,0 +1,78 @@
+package net.chetan.habitsync.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import net.chetan.habitsync.model.User;
+import net.chetan.habitsync.repository.UserRepository;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Bounded, TTL-evicting cache of authenticated users keyed by user ID. Any save or delete of a
+ * {@link User} through Spring Data evicts the entry, so profile and password changes are seen
+ * by the next request.
+ */
+@Component
+public class UserCache extends AbstractMongoEventListener<User> {
+
+    private final UserRepository userRepository;
+    private final Cache<String, User> users;
+
+    public UserCache(UserRepository userRepository,
+                     MeterRegistry meterRegistry,
+                     @Value("${habitsync.security.user-cache.max-size:10000}") long maxSize,
+                     @Value("${habitsync.security.user-cache.ttl:5m}") Duration ttl) {
+        this.userRepository = userRepository;
+        this.users = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, users, "users");
+    }
+
+    public Optional<User> get(String userId) {
+        User cached = users.getIfPresent(userId);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        Optional<User> loaded = userRepository.findById(userId);
+        loaded.ifPresent(u -> users.put(userId, u));
+        return loaded;
+    }
+
+    public Optional<User> getIfPresent(String userId) {
+        return Optional.ofNullable(users.getIfPresent(userId));
+    }
+
+    public void put(User user) {
+        users.put(user.getId(), user);
+    }
+
+    public void evict(String userId) {
+        users.invalidate(userId);
+    }
+
+    @Override
+    public void onAfterSave(AfterSaveEvent<User> event) {
+        evict(event.getSource().getId());
+    }
+
+    @Override
+    public void onAfterDelete(AfterDeleteEvent<User> event) {
+        Document source = event.getSource();
+        Object id = source.get("_id");
+        if (id != null) {
+            evict(id.toString());
+        }
+    }
+}
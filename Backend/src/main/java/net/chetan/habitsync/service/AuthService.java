@@ -4,50 +4,91 @@ import net.chetan.habitsync.dto.AuthDtos.*;
 import net.chetan.habitsync.model.User;
 import net.chetan.habitsync.repository.UserRepository;
 import net.chetan.habitsync.security.JwtService;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import net.chetan.habitsync.security.PasswordHashingService;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.stereotype.Service;
 
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Registration and login. The controller is shared by the servlet and reactive stacks, so no
+ * stage runs a blocking repository call on the calling thread, which is a Netty event loop
+ * under WebFlux: lookups and saves run on the application task executor, and BCrypt on the
+ * password hashing pool.
+ */
 @Service
 public class AuthService {
 
     private final UserRepository userRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHashingService passwordHashingService;
     private final JwtService jwtService;
+    private final AsyncTaskExecutor taskExecutor;
 
     public AuthService(UserRepository userRepository,
-                       PasswordEncoder passwordEncoder,
-                       JwtService jwtService) {
+                       PasswordHashingService passwordHashingService,
+                       JwtService jwtService,
+                       @Qualifier("applicationTaskExecutor") AsyncTaskExecutor taskExecutor) {
         this.userRepository = userRepository;
-        this.passwordEncoder = passwordEncoder;
+        this.passwordHashingService = passwordHashingService;
         this.jwtService = jwtService;
+        this.taskExecutor = taskExecutor;
     }
 
-    public AuthResponse register(RegisterRequest request) {
-        if (userRepository.findByEmail(request.email()).isPresent()) {
-            throw new RuntimeException("Email already in use");
-        }
-
-        User user = new User();
-        user.setName(request.name());
-        user.setEmail(request.email());
-        user.setPassword(passwordEncoder.encode(request.password()));
+    public CompletableFuture<AuthResponse> register(RegisterRequest request) {
+        return findByEmail(request.email())
+                .thenCompose(existing -> {
+                    if (existing.isPresent()) {
+                        throw new RuntimeException("Email already in use");
+                    }
+                    return passwordHashingService.encode(request.password());
+                })
+                .thenApplyAsync(hash -> {
+                    User user = new User();
+                    user.setName(request.name());
+                    user.setEmail(request.email());
+                    user.setPassword(hash);
 
-        user = userRepository.save(user);
+                    user = userRepository.save(user);
 
-        String token = jwtService.generateToken(user.getEmail());
+                    return toResponse(user);
+                }, taskExecutor);
+    }
 
-        return new AuthResponse(user.getId(), user.getName(), user.getEmail(), token);
+    public CompletableFuture<AuthResponse> login(LoginRequest request) {
+        return findByEmail(request.email())
+                .thenApply(found -> found.orElseThrow(() -> new RuntimeException("User not found")))
+                .thenCompose(user -> checkPassword(user, request));
     }
 
-    public AuthResponse login(LoginRequest request) {
-        User user = userRepository.findByEmail(request.email())
-                .orElseThrow(() -> new RuntimeException("User not found"));
+    private CompletableFuture<AuthResponse> checkPassword(User user, LoginRequest request) {
+        return passwordHashingService.matches(request.password(), user.getPassword())
+                .thenCompose(matches -> {
+                    if (!matches) {
+                        throw new RuntimeException("Invalid credentials");
+                    }
+                    AuthResponse response = toResponse(user);
+                    if (!passwordHashingService.needsRehash(user.getPassword())) {
+                        return CompletableFuture.completedFuture(response);
+                    }
+                    // best effort: a saturated pool must not fail an otherwise valid login
+                    return passwordHashingService.encode(request.password())
+                            .thenApplyAsync(hash -> {
+                                user.setPassword(hash);
+                                userRepository.save(user);
+                                return response;
+                            }, taskExecutor)
+                            .exceptionally(ex -> response);
+                });
+    }
 
-        if (!passwordEncoder.matches(request.password(), user.getPassword())) {
-            throw new RuntimeException("Invalid credentials");
-        }
+    private CompletableFuture<Optional<User>> findByEmail(String email) {
+        return CompletableFuture.supplyAsync(() -> userRepository.findByEmail(email), taskExecutor);
+    }
 
-        String token = jwtService.generateToken(user.getEmail());
+    private AuthResponse toResponse(User user) {
+        String token = jwtService.generateToken(user);
         return new AuthResponse(user.getId(), user.getName(), user.getEmail(), token);
     }
 }
@@ -0,0 +1,190 @@
+package net.chetan.habitsync.service;
+
+import net.chetan.habitsync.model.HabitCompletionBitmap;
+import net.chetan.habitsync.repository.HabitCompletionBitmapRepository;
+import net.chetan.habitsync.repository.HabitCompletionRepositoryCustom.CompletionCounts;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Yearly bitmaps are keyed by habit, so reads stay habit-scoped and ignore the user ID; it is
+ * only recorded on write.
+ */
+@Service
+@ConditionalOnProperty(name = "habitsync.completions.storage", havingValue = "bitmap")
+public class BitmapCompletionStore implements CompletionStore {
+
+    private final HabitCompletionBitmapRepository bitmapRepository;
+    private final MongoTemplate mongoTemplate;
+
+    public BitmapCompletionStore(HabitCompletionBitmapRepository bitmapRepository,
+                                 MongoTemplate mongoTemplate) {
+        this.bitmapRepository = bitmapRepository;
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    public static Query queryFor(String habitId, LocalDate date) {
+        return query(where("_id").is(HabitCompletionBitmap.idFor(habitId, date.getYear())));
+    }
+
+    public static Update completionUpdate(String userId, String habitId, LocalDate date) {
+        int bit = HabitCompletionBitmap.bitFor(date);
+        Update update = new Update()
+                .setOnInsert("habitId", habitId)
+                .setOnInsert("year", date.getYear())
+                .set("updatedAt", Instant.now());
+        if (userId != null) {
+            update.set("userId", userId);
+        }
+        update.bitwise("words." + HabitCompletionBitmap.wordKey(bit)).or(HabitCompletionBitmap.maskFor(bit));
+        return update;
+    }
+
+    public static Update clearUpdate(LocalDate date) {
+        int bit = HabitCompletionBitmap.bitFor(date);
+        Update update = new Update().set("updatedAt", Instant.now());
+        update.bitwise("words." + HabitCompletionBitmap.wordKey(bit)).and(~HabitCompletionBitmap.maskFor(bit));
+        return update;
+    }
+
+    @Override
+    public boolean markCompleted(String userId, String habitId, LocalDate date) {
+        HabitCompletionBitmap before = mongoTemplate.findAndModify(
+                queryFor(habitId, date),
+                completionUpdate(userId, habitId, date),
+                FindAndModifyOptions.options().upsert(true).returnNew(false),
+                HabitCompletionBitmap.class);
+        return before == null || !before.isSet(date);
+    }
+
+    @Override
+    public Map<String, DayBitSet> load(String userId, Collection<String> habitIds, LocalDate start, LocalDate end) {
+        Map<String, DayBitSet> days = new HashMap<>();
+        habitIds.forEach(id -> days.put(id, new DayBitSet(start, end)));
+        if (habitIds.isEmpty()) {
+            return days;
+        }
+        bitmapRepository.findInYears(habitIds, start.getYear(), end.getYear())
+                .forEach(bitmap -> forEachDay(bitmap, days.get(bitmap.getHabitId())::set));
+        return days;
+    }
+
+    @Override
+    public Map<String, DayBitSet> loadHistories(Collection<String> habitIds, LocalDate since) {
+        if (habitIds.isEmpty()) {
+            return Map.of();
+        }
+        List<HabitCompletionBitmap> bitmaps = since != null
+                ? bitmapRepository.findByHabitIdInAndYearGreaterThanEqual(habitIds, since.getYear())
+                : bitmapRepository.findByHabitIdIn(habitIds);
+        Map<String, List<LocalDate>> completed = new HashMap<>();
+        bitmaps.forEach(bitmap -> forEachDay(bitmap, day -> {
+            if (since == null || !day.isBefore(since)) {
+                completed.computeIfAbsent(bitmap.getHabitId(), id -> new ArrayList<>()).add(day);
+            }
+        }));
+        return DayBitSet.ofEach(completed);
+    }
+
+    @Override
+    public Set<Integer> applyAll(String userId, List<CompletionEntry> entries) {
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, HabitCompletionBitmap.class);
+        for (CompletionEntry entry : entries) {
+            Query year = queryFor(entry.habitId(), entry.date());
+            if (entry.completed()) {
+                bulk.upsert(year, completionUpdate(userId, entry.habitId(), entry.date()));
+            } else {
+                bulk.updateOne(year, clearUpdate(entry.date()));
+            }
+        }
+        return DocumentCompletionStore.executeUnordered(bulk);
+    }
+
+    /**
+     * A bitmap does not record which of its days changed, so every day of a changed year is
+     * sent with its state.
+     */
+    @Override
+    public List<CompletionEntry> changedSince(String userId, Collection<String> habitIds, Instant since) {
+        if (habitIds.isEmpty()) {
+            return List.of();
+        }
+        List<CompletionEntry> entries = new ArrayList<>();
+        if (since == null) {
+            bitmapRepository.findByHabitIdIn(habitIds).forEach(bitmap -> forEachDay(bitmap,
+                    day -> entries.add(new CompletionEntry(bitmap.getHabitId(), day, true))));
+            return entries;
+        }
+        for (HabitCompletionBitmap bitmap : bitmapRepository.findUpdatedSince(habitIds, since)) {
+            LocalDate first = LocalDate.ofYearDay(bitmap.getYear(), 1);
+            for (LocalDate day = first; day.getYear() == bitmap.getYear(); day = day.plusDays(1)) {
+                entries.add(new CompletionEntry(bitmap.getHabitId(), day, bitmap.isSet(day)));
+            }
+        }
+        return entries;
+    }
+
+    @Override
+    public Stream<CompletionEntry> streamCompleted(String userId, Collection<String> habitIds) {
+        Query query = query(where("habitId").in(habitIds)).with(Sort.by("habitId", "year"));
+        return mongoTemplate.stream(query, HabitCompletionBitmap.class)
+                .flatMap(bitmap -> {
+                    List<CompletionEntry> days = new ArrayList<>();
+                    forEachDay(bitmap, d -> days.add(new CompletionEntry(bitmap.getHabitId(), d, true)));
+                    return days.stream();
+                });
+    }
+
+    @Override
+    public List<CompletionCounts> countCompleted(String userId,
+                                                 Collection<String> habitIds,
+                                                 LocalDate windowStart,
+                                                 LocalDate recentStart,
+                                                 LocalDate end) {
+        List<CompletionCounts> counts = new ArrayList<>();
+        load(userId, habitIds, windowStart, end).forEach((habitId, days) -> {
+            int total = days.count(windowStart, end);
+            if (total > 0) {
+                counts.add(new CompletionCounts(habitId, total, days.count(recentStart, end)));
+            }
+        });
+        return counts;
+    }
+
+    /**
+     * Visits set bits in ascending date order, skipping whole empty words.
+     */
+    private static void forEachDay(HabitCompletionBitmap bitmap, Consumer<LocalDate> action) {
+        int daysInYear = LocalDate.ofYearDay(bitmap.getYear(), 1).lengthOfYear();
+        for (int w = 0; w < HabitCompletionBitmap.WORDS; w++) {
+            long word = bitmap.word(w);
+            while (word != 0) {
+                int bit = (w << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+                if (bit < daysInYear) {
+                    action.accept(LocalDate.ofYearDay(bitmap.getYear(), bit + 1));
+                }
+            }
+        }
+    }
+}
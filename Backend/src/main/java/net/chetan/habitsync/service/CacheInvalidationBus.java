@@ -0,0 +1,15 @@
+package net.chetan.habitsync.service;
+
+import java.util.function.Consumer;
+
+/**
+ * Carries cache invalidations between instances, for example over Redis pub/sub or a Mongo
+ * change stream. A published user ID is delivered to the subscribers of every instance,
+ * possibly including the publishing one.
+ */
+public interface CacheInvalidationBus {
+
+    void publish(String userId);
+
+    void subscribe(Consumer<String> listener);
+}
@@ -0,0 +1,65 @@
+package net.chetan.habitsync.service;
+
+import net.chetan.habitsync.repository.HabitCompletionRepositoryCustom.CompletionCounts;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Completed days of habits. Writes record the owning user next to each day, and methods that
+ * take a {@code userId} may use it to keep the query on one user's data, which is what lets
+ * completions be sharded by user.
+ */
+public interface CompletionStore {
+
+    record CompletionEntry(String habitId, LocalDate date, boolean completed) {}
+
+    /**
+     * Marks the day as completed and returns {@code true} if it was not completed before.
+     */
+    boolean markCompleted(String userId, String habitId, LocalDate date);
+
+    Map<String, DayBitSet> load(String userId, Collection<String> habitIds, LocalDate start, LocalDate end);
+
+    /**
+     * Completed days of each habit on or after {@code since}, or all of them when {@code since}
+     * is null, from the first to the last completion found. Habits without completions are left
+     * out. One query.
+     */
+    Map<String, DayBitSet> loadHistories(Collection<String> habitIds, LocalDate since);
+
+    default Optional<DayBitSet> loadHistory(String habitId, LocalDate since) {
+        return Optional.ofNullable(loadHistories(List.of(habitId), since).get(habitId));
+    }
+
+    /**
+     * Writes all entries in one unordered bulk operation and returns the positions of the
+     * entries that failed. Entries must not repeat a habit and day.
+     */
+    Set<Integer> applyAll(String userId, List<CompletionEntry> entries);
+
+    /**
+     * Day states of the habits written at or after {@code since}, completed and uncompleted, or
+     * every completed day when {@code since} is null. May include days that did not change;
+     * callers apply them idempotently.
+     */
+    List<CompletionEntry> changedSince(String userId, Collection<String> habitIds, Instant since);
+
+    /**
+     * Every completed day of the habits, ordered by habit and then date, read through a cursor.
+     * The caller must close the stream.
+     */
+    Stream<CompletionEntry> streamCompleted(String userId, Collection<String> habitIds);
+
+    List<CompletionCounts> countCompleted(String userId,
+                                          Collection<String> habitIds,
+                                          LocalDate windowStart,
+                                          LocalDate recentStart,
+                                          LocalDate end);
+}
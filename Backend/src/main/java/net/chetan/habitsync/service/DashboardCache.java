@@ -0,0 +1,121 @@
+package net.chetan.habitsync.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import net.chetan.habitsync.dto.HabitDtos.HabitResponse;
+import net.chetan.habitsync.dto.StatsDtos.OverviewStats;
+import net.chetan.habitsync.model.User;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Per-user cache of the habit list and the overview. Both only change when the user's data
+ * changes, which bumps the data version and invalidates here, or when the date moves on, so
+ * entries expire at the next midnight, the start of every new day and week. The midnight is
+ * the earlier of the server's, whose date the values are computed with, and the user's own.
+ * <p>
+ * Loads go through {@link AsyncCache}, so an invalidation that arrives while a value is being
+ * computed drops that value instead of letting it be stored after the change.
+ */
+@Component
+public class DashboardCache {
+
+    private final AsyncCache<String, Entry<List<HabitResponse>>> habits;
+    private final AsyncCache<String, Entry<OverviewStats>> overviews;
+    private final CacheInvalidationBus bus;
+
+    private record Entry<T>(T value, Instant expiresAt) {}
+
+    public DashboardCache(CacheInvalidationBus bus,
+                          MeterRegistry meterRegistry,
+                          @Value("${habitsync.dashboard-cache.max-size:50000}") long maxSize) {
+        this.bus = bus;
+        this.habits = CaffeineCacheMetrics.monitor(meterRegistry, newCache(maxSize), "dashboard.habits");
+        this.overviews = CaffeineCacheMetrics.monitor(meterRegistry, newCache(maxSize), "dashboard.overview");
+        bus.subscribe(this::invalidateLocally);
+    }
+
+    public List<HabitResponse> habits(User user, Supplier<List<HabitResponse>> loader) {
+        return habits.synchronous().get(user.getId(), id -> new Entry<>(loader.get(), nextMidnight(user))).value();
+    }
+
+    /**
+     * Cancelling the returned Mono does not cancel a load that other requests may be waiting on.
+     */
+    public Mono<List<HabitResponse>> habits(User user, Mono<List<HabitResponse>> loader) {
+        return Mono.fromFuture(() -> habits.get(user.getId(), (id, executor) ->
+                        loader.map(value -> new Entry<>(value, nextMidnight(user))).toFuture()), true)
+                .map(Entry::value);
+    }
+
+    public OverviewStats overview(User user, Supplier<OverviewStats> loader) {
+        return overviews.synchronous().get(user.getId(), id -> new Entry<>(loader.get(), nextMidnight(user))).value();
+    }
+
+    public Mono<OverviewStats> overview(User user, Mono<OverviewStats> loader) {
+        return Mono.fromFuture(() -> overviews.get(user.getId(), (id, executor) ->
+                        loader.map(value -> new Entry<>(value, nextMidnight(user))).toFuture()), true)
+                .map(Entry::value);
+    }
+
+    /**
+     * Drops the user's entries here and on every other instance.
+     */
+    public void invalidate(String userId) {
+        invalidateLocally(userId);
+        bus.publish(userId);
+    }
+
+    private void invalidateLocally(String userId) {
+        habits.synchronous().invalidate(userId);
+        overviews.synchronous().invalidate(userId);
+    }
+
+    static Instant nextMidnight(User user) {
+        Instant now = Instant.now();
+        Instant server = nextMidnight(now, ZoneId.systemDefault());
+        Instant local = nextMidnight(now, TimeZones.zoneOf(user));
+        return server.isBefore(local) ? server : local;
+    }
+
+    static Instant nextMidnight(Instant now, ZoneId zone) {
+        return LocalDate.ofInstant(now, zone).plusDays(1).atStartOfDay(zone).toInstant();
+    }
+
+    private static <T> AsyncCache<String, Entry<T>> newCache(long maxSize) {
+        return Caffeine.newBuilder()
+                // loads block on Mongo, so they run on the requesting thread rather than the
+                // common pool, and their queries count towards that request
+                .executor(Runnable::run)
+                .maximumSize(maxSize)
+                .expireAfter(new Expiry<String, Entry<T>>() {
+                    @Override
+                    public long expireAfterCreate(String key, Entry<T> entry, long currentTime) {
+                        return Math.max(0, Duration.between(Instant.now(), entry.expiresAt()).toNanos());
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, Entry<T> entry, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, entry, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, Entry<T> entry, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .buildAsync();
+    }
+}
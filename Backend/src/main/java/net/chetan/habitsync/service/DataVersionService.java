@@ -0,0 +1,55 @@
+package net.chetan.habitsync.service;
+
+import net.chetan.habitsync.model.UserDataVersion;
+import net.chetan.habitsync.repository.UserDataVersionRepository;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * A per-user counter that is bumped after every change to the user's habits or completions.
+ * Together with the current date, which moves streaks and weekly counts, it identifies one
+ * state of everything the habit list and the overview show, so it can serve as their ETag.
+ */
+@Service
+public class DataVersionService {
+
+    private final UserDataVersionRepository versionRepository;
+    private final MongoTemplate mongoTemplate;
+    private final DashboardCache dashboardCache;
+
+    public DataVersionService(UserDataVersionRepository versionRepository,
+                              MongoTemplate mongoTemplate,
+                              DashboardCache dashboardCache) {
+        this.versionRepository = versionRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.dashboardCache = dashboardCache;
+    }
+
+    /**
+     * Must be read before the data it tags, so that a concurrent change can only make the tag
+     * older than the body and never newer.
+     */
+    public String etag(String userId) {
+        long version = versionRepository.findById(userId).map(UserDataVersion::getVersion).orElse(0L);
+        return etag(version, LocalDate.now());
+    }
+
+    /**
+     * Also drops the user's cached dashboard. That happens first, so a request that already sees
+     * the new version can only get a body loaded after the change.
+     */
+    public void bump(String userId) {
+        dashboardCache.invalidate(userId);
+        mongoTemplate.upsert(query(where("_id").is(userId)), new Update().inc("version", 1), UserDataVersion.class);
+    }
+
+    public static String etag(long version, LocalDate today) {
+        return "\"" + version + "-" + today + "\"";
+    }
+}
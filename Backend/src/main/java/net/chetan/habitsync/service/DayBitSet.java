@@ -0,0 +1,119 @@
+package net.chetan.habitsync.service;
+
+import java.time.LocalDate;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+public class DayBitSet {
+
+    private final LocalDate from;
+    private final LocalDate to;
+    private final BitSet bits;
+
+    public DayBitSet(LocalDate from, LocalDate to) {
+        if (to.isBefore(from)) {
+            throw new IllegalArgumentException("Range end before start");
+        }
+        this.from = from;
+        this.to = to;
+        this.bits = new BitSet(length());
+    }
+
+    /**
+     * The smallest range holding all of the days, with those days set, or empty when there are
+     * none.
+     */
+    public static Optional<DayBitSet> of(Collection<LocalDate> days) {
+        LocalDate first = null;
+        LocalDate last = null;
+        for (LocalDate day : days) {
+            first = first == null || day.isBefore(first) ? day : first;
+            last = last == null || day.isAfter(last) ? day : last;
+        }
+        if (first == null) {
+            return Optional.empty();
+        }
+        DayBitSet set = new DayBitSet(first, last);
+        days.forEach(set::set);
+        return Optional.of(set);
+    }
+
+    /**
+     * {@link #of} applied to the days of each key; keys without days are left out.
+     */
+    public static <K> Map<K, DayBitSet> ofEach(Map<K, ? extends Collection<LocalDate>> days) {
+        Map<K, DayBitSet> sets = new HashMap<>();
+        days.forEach((key, keyDays) -> of(keyDays).ifPresent(set -> sets.put(key, set)));
+        return sets;
+    }
+
+    public LocalDate getFrom() {
+        return from;
+    }
+
+    public LocalDate getTo() {
+        return to;
+    }
+
+    public int length() {
+        return (int) (to.toEpochDay() - from.toEpochDay()) + 1;
+    }
+
+    public boolean contains(LocalDate date) {
+        return !date.isBefore(from) && !date.isAfter(to);
+    }
+
+    public void set(LocalDate date) {
+        if (contains(date)) {
+            bits.set(indexOf(date));
+        }
+    }
+
+    public boolean get(LocalDate date) {
+        return contains(date) && bits.get(indexOf(date));
+    }
+
+    public int count(LocalDate start, LocalDate end) {
+        LocalDate lo = start.isBefore(from) ? from : start;
+        LocalDate hi = end.isAfter(to) ? to : end;
+        if (hi.isBefore(lo)) {
+            return 0;
+        }
+        return bits.get(indexOf(lo), indexOf(hi) + 1).cardinality();
+    }
+
+    public int runEndingAt(LocalDate date) {
+        if (!get(date)) {
+            return 0;
+        }
+        int end = indexOf(date);
+        int gap = bits.previousClearBit(end);
+        return end - gap;
+    }
+
+    public int longestRun() {
+        int longest = 0;
+        int start = bits.nextSetBit(0);
+        while (start >= 0) {
+            int end = bits.nextClearBit(start);
+            longest = Math.max(longest, end - start);
+            start = bits.nextSetBit(end);
+        }
+        return longest;
+    }
+
+    /**
+     * Little-endian bitmap of the range: bit {@code i} of the result is day {@code from + i}.
+     * Trailing days that are not set are omitted.
+     */
+    public byte[] toByteArray() {
+        return bits.toByteArray();
+    }
+
+    private int indexOf(LocalDate date) {
+        return (int) (date.toEpochDay() - from.toEpochDay());
+    }
+}
@@ -0,0 +1,184 @@
+package net.chetan.habitsync.service;
+
+import com.mongodb.bulk.BulkWriteError;
+import net.chetan.habitsync.model.HabitCompletion;
+import net.chetan.habitsync.repository.HabitCompletionRepository;
+import net.chetan.habitsync.repository.HabitCompletionRepositoryCustom.CompletionCounts;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+@Service
+@ConditionalOnProperty(name = "habitsync.completions.storage", havingValue = "documents", matchIfMissing = true)
+public class DocumentCompletionStore implements CompletionStore {
+
+    private final HabitCompletionRepository completionRepository;
+    private final MongoTemplate mongoTemplate;
+    private final boolean queryByUser;
+
+    public DocumentCompletionStore(HabitCompletionRepository completionRepository,
+                                   MongoTemplate mongoTemplate,
+                                   @Value("${habitsync.completions.query-by-user:false}") boolean queryByUser) {
+        this.completionRepository = completionRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.queryByUser = queryByUser;
+    }
+
+    /**
+     * One round trip: upserts on the unique {@code (habitId, date)} key and returns the
+     * previous document, so concurrent taps never create a second row for the same day.
+     */
+    @Override
+    public boolean markCompleted(String userId, String habitId, LocalDate date) {
+        HabitCompletion before = mongoTemplate.findAndModify(
+                query(where("habitId").is(habitId).and("date").is(date)),
+                Update.update("completed", true).set("userId", userId).set("updatedAt", Instant.now()),
+                FindAndModifyOptions.options().upsert(true).returnNew(false),
+                HabitCompletion.class);
+        return before == null || !before.isCompleted();
+    }
+
+    /**
+     * With {@code query-by-user} on, this is one scan of the user's window on the
+     * {@code (userId, date, habitId)} index, keeping the rows of the requested habits.
+     */
+    @Override
+    public Map<String, DayBitSet> load(String userId, Collection<String> habitIds, LocalDate start, LocalDate end) {
+        if (!queryByUser || habitIds.isEmpty()) {
+            return load(habitIds, start, end);
+        }
+        Map<String, DayBitSet> days = new HashMap<>();
+        habitIds.forEach(id -> days.put(id, new DayBitSet(start, end)));
+        completionRepository.findCompletedByUserInRange(userId, start, end).forEach(c -> {
+            DayBitSet habitDays = days.get(c.getHabitId());
+            if (habitDays != null) {
+                habitDays.set(c.getDate());
+            }
+        });
+        return days;
+    }
+
+    private Map<String, DayBitSet> load(Collection<String> habitIds, LocalDate start, LocalDate end) {
+        Map<String, DayBitSet> days = new HashMap<>();
+        habitIds.forEach(id -> days.put(id, new DayBitSet(start, end)));
+        if (habitIds.isEmpty()) {
+            return days;
+        }
+        completionRepository.findCompletedInRange(habitIds, start, end)
+                .forEach(c -> days.get(c.getHabitId()).set(c.getDate()));
+        return days;
+    }
+
+    /**
+     * The bounds come from the rows themselves, so this is a single scan of the
+     * {@code (habitId, date)} index rather than a lookup of each end and then the range.
+     */
+    @Override
+    public Map<String, DayBitSet> loadHistories(Collection<String> habitIds, LocalDate since) {
+        if (habitIds.isEmpty()) {
+            return Map.of();
+        }
+        List<HabitCompletion> completions = since != null
+                ? completionRepository.findCompletedSince(habitIds, since)
+                : completionRepository.findAllCompleted(habitIds);
+        return DayBitSet.ofEach(completions.stream().collect(Collectors.groupingBy(HabitCompletion::getHabitId,
+                Collectors.mapping(HabitCompletion::getDate, Collectors.toList()))));
+    }
+
+    @Override
+    public Set<Integer> applyAll(String userId, List<CompletionEntry> entries) {
+        Instant now = Instant.now();
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, HabitCompletion.class);
+        for (CompletionEntry entry : entries) {
+            Query day = query(where("habitId").is(entry.habitId()).and("date").is(entry.date()));
+            Update update = Update.update("completed", entry.completed())
+                    .set("userId", userId)
+                    .set("updatedAt", now);
+            if (entry.completed()) {
+                bulk.upsert(day, update);
+            } else {
+                // never create a row just to say a day was not done
+                bulk.updateOne(day, update);
+            }
+        }
+        return executeUnordered(bulk);
+    }
+
+    /**
+     * Runs an unordered bulk write and returns the positions of the operations that failed,
+     * typically duplicate keys from an upsert racing another writer.
+     */
+    static Set<Integer> executeUnordered(BulkOperations bulk) {
+        try {
+            bulk.execute();
+            return Set.of();
+        } catch (BulkOperationException e) {
+            return e.getErrors().stream()
+                    .map(BulkWriteError::getIndex)
+                    .collect(Collectors.toSet());
+        }
+    }
+
+    @Override
+    public List<CompletionEntry> changedSince(String userId, Collection<String> habitIds, Instant since) {
+        if (habitIds.isEmpty()) {
+            return List.of();
+        }
+        List<HabitCompletion> completions;
+        if (queryByUser) {
+            completions = since != null
+                    ? completionRepository.findUpdatedSinceForUser(userId, habitIds, since)
+                    : completionRepository.findAllCompletedForUser(userId, habitIds);
+        } else {
+            completions = since != null
+                    ? completionRepository.findUpdatedSince(habitIds, since)
+                    : completionRepository.findAllCompleted(habitIds);
+        }
+        return completions.stream()
+                .map(c -> new CompletionEntry(c.getHabitId(), c.getDate(), c.isCompleted()))
+                .toList();
+    }
+
+    @Override
+    public Stream<CompletionEntry> streamCompleted(String userId, Collection<String> habitIds) {
+        Criteria owner = queryByUser
+                ? where("userId").is(userId).and("habitId").in(habitIds)
+                : where("habitId").in(habitIds);
+        Query query = query(owner.and("completed").is(true))
+                .with(Sort.by("habitId", "date"));
+        query.fields().include("habitId", "date");
+        return mongoTemplate.stream(query, HabitCompletion.class)
+                .map(c -> new CompletionEntry(c.getHabitId(), c.getDate(), true));
+    }
+
+    @Override
+    public List<CompletionCounts> countCompleted(String userId,
+                                                 Collection<String> habitIds,
+                                                 LocalDate windowStart,
+                                                 LocalDate recentStart,
+                                                 LocalDate end) {
+        return completionRepository.countCompleted(queryByUser ? userId : null,
+                habitIds, windowStart, recentStart, end);
+    }
+}
@@ -0,0 +1,58 @@
+package net.chetan.habitsync.service;
+
+import net.chetan.habitsync.dto.ExportDtos.*;
+import net.chetan.habitsync.model.Habit;
+import net.chetan.habitsync.model.User;
+import net.chetan.habitsync.repository.HabitRepository;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Full account export: the user, then every habit including archived ones, then every
+ * completed day ordered by habit and date. Habits are read in one query; completions, which
+ * grow with the account's history, come from a cursor as the stream is consumed, so an export
+ * holds only one batch of them in memory at a time.
+ */
+@Service
+public class ExportService {
+
+    private final HabitRepository habitRepository;
+    private final CompletionStore completionStore;
+
+    public ExportService(HabitRepository habitRepository,
+                         CompletionStore completionStore) {
+        this.habitRepository = habitRepository;
+        this.completionStore = completionStore;
+    }
+
+    /**
+     * Opens the completion cursor; the caller must close the returned stream.
+     */
+    public Stream<Object> records(User user) {
+        List<Habit> habits = habitRepository.findByUserIdOrderByCreatedAtAsc(user.getId());
+        Stream<Object> head = Stream.concat(
+                Stream.of(toRecord(user)),
+                habits.stream().map(ExportService::toRecord));
+        if (habits.isEmpty()) {
+            return head;
+        }
+        Stream<Object> completions = completionStore
+                .streamCompleted(user.getId(), habits.stream().map(Habit::getId).toList())
+                .map(c -> new CompletionRecord("completion", c.habitId(), c.date()));
+        return Stream.concat(head, completions);
+    }
+
+    private static UserRecord toRecord(User user) {
+        return new UserRecord("user", user.getId(), user.getName(), user.getEmail(),
+                user.getProvider(), user.getCreatedAt());
+    }
+
+    private static HabitRecord toRecord(Habit habit) {
+        return new HabitRecord("habit", habit.getId(), habit.getName(), habit.getIcon(),
+                habit.getFrequency(), habit.getGoalPerWeek(), habit.getReminderTime(),
+                habit.getMotivationalQuote(), habit.isArchived(), habit.getCreatedAt(),
+                habit.getUpdatedAt());
+    }
+}
@@ -0,0 +1,244 @@
+package net.chetan.habitsync.service;
+
+import net.chetan.habitsync.model.Habit;
+import net.chetan.habitsync.model.HabitRollup;
+import net.chetan.habitsync.repository.HabitRollupRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+@Service
+public class HabitRollupService {
+
+    private static final Logger log = LoggerFactory.getLogger(HabitRollupService.class);
+
+    private static final int MAX_REBUILD_ATTEMPTS = 3;
+
+    private final HabitRollupRepository rollupRepository;
+    private final CompletionStore completionStore;
+    private final MongoTemplate mongoTemplate;
+
+    public HabitRollupService(HabitRollupRepository rollupRepository,
+                              CompletionStore completionStore,
+                              MongoTemplate mongoTemplate) {
+        this.rollupRepository = rollupRepository;
+        this.completionStore = completionStore;
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    /**
+     * Rollups of the habits, rebuilding any that are missing. The missing ones are rebuilt
+     * together from at most {@link HabitService#MAX_HISTORY_DAYS} days of completions, so they
+     * cost one bounded range query and one write however many there are.
+     */
+    public Map<String, HabitRollup> rollupsFor(Collection<String> habitIds) {
+        Map<String, HabitRollup> rollups = new HashMap<>();
+        rollupRepository.findAllById(habitIds).forEach(r -> rollups.put(r.getHabitId(), r));
+        List<String> missing = habitIds.stream().filter(id -> !rollups.containsKey(id)).toList();
+        if (!missing.isEmpty()) {
+            rollups.putAll(rebuild(missing, Map.of()));
+        }
+        return rollups;
+    }
+
+    public void initialize(String habitId) {
+        rollupRepository.save(new HabitRollup(habitId));
+    }
+
+    public static int currentStreak(HabitRollup rollup, LocalDate today) {
+        return today.equals(rollup.getLastCompletedDate()) ? rollup.getCurrentStreak() : 0;
+    }
+
+    public static int completionsThisWeek(HabitRollup rollup, LocalDate today) {
+        return startOfWeek(today).equals(rollup.getWeekStart()) ? rollup.getWeekCount() : 0;
+    }
+
+    /**
+     * Applies a newly completed day to the rollup with a single conditional update. The
+     * condition pins every field that was read, so a concurrent writer makes the update miss
+     * and the rollup is rebuilt from raw completions instead. A backdated day recomputes the
+     * streak and the period counts from the history, since a rebuild racing with this call may
+     * already have counted it. Callers reject days after today, which would move the streak and
+     * the current week and month ahead of the calendar.
+     */
+    public void recordCompletion(String habitId, LocalDate date) {
+        HabitRollup rollup = rollupRepository.findById(habitId).orElse(null);
+        if (rollup == null) {
+            rebuild(List.of(habitId), Map.of());
+            return;
+        }
+
+        LocalDate last = rollup.getLastCompletedDate();
+        Update update = new Update();
+        if (last == null || date.isAfter(last)) {
+            int streak = last != null && date.equals(last.plusDays(1)) ? rollup.getCurrentStreak() + 1 : 1;
+            update.set("lastCompletedDate", date)
+                    .set("currentStreak", streak)
+                    .max("longestStreak", streak);
+            bucket(update, "weekStart", "weekCount", rollup.getWeekStart(), startOfWeek(date));
+            bucket(update, "monthStart", "monthCount", rollup.getMonthStart(), date.withDayOfMonth(1));
+        } else {
+            // a backdated day can join two runs anywhere in the history window; a window without
+            // completions leaves no streak and nothing to count
+            LocalDate since = historyStart(LocalDate.now());
+            DayBitSet days = completionStore.loadHistory(habitId, since).orElseGet(() -> new DayBitSet(since, since));
+            update.set("currentStreak", days.runEndingAt(last))
+                    .max("longestStreak", days.longestRun());
+            LocalDate weekStart = rollup.getWeekStart();
+            LocalDate monthStart = rollup.getMonthStart();
+            if (weekStart != null) {
+                update.set("weekCount", days.count(weekStart, weekStart.plusDays(6)));
+            }
+            if (monthStart != null) {
+                update.set("monthCount", days.count(monthStart, monthStart.plusMonths(1).minusDays(1)));
+            }
+        }
+
+        if (mongoTemplate.updateFirst(unchanged(rollup), update, HabitRollup.class).getModifiedCount() == 0) {
+            rebuild(habitId);
+        }
+    }
+
+    /**
+     * Recomputes the rollup from the last {@link HabitService#MAX_HISTORY_DAYS} days of
+     * completions, so the work is bounded however old the habit is. Runs that ended before that
+     * window no longer count towards the longest streak.
+     */
+    public HabitRollup rebuild(String habitId) {
+        return rebuild(List.of(habitId)).get(habitId);
+    }
+
+    /**
+     * {@link #rebuild(String)} for many habits at once: one read of their rollups, one of their
+     * histories and one bulk write.
+     */
+    public Map<String, HabitRollup> rebuild(Collection<String> habitIds) {
+        Map<String, HabitRollup> current = new HashMap<>();
+        rollupRepository.findAllById(habitIds).forEach(r -> current.put(r.getHabitId(), r));
+        return rebuild(habitIds, current);
+    }
+
+    /**
+     * Replaces each rollup only while it still holds its {@code current} state, or is still
+     * missing, so a completion recorded after the histories were read is not overwritten. A
+     * replace that misses upserts onto the existing ID and fails, and the habits that lost such
+     * a race are read and rebuilt again. Past {@link #MAX_REBUILD_ATTEMPTS} the rebuilt rollups
+     * are saved regardless.
+     */
+    private Map<String, HabitRollup> rebuild(Collection<String> habitIds, Map<String, HabitRollup> current) {
+        Map<String, HabitRollup> rebuilt = new HashMap<>();
+        List<String> pending = List.copyOf(habitIds);
+        for (int attempt = 1; ; attempt++) {
+            Map<String, DayBitSet> histories = completionStore.loadHistories(pending, historyStart(LocalDate.now()));
+            List<HabitRollup> rollups = pending.stream()
+                    .map(id -> fromHistory(id, histories.get(id)))
+                    .toList();
+            if (attempt == MAX_REBUILD_ATTEMPTS) {
+                rollupRepository.saveAll(rollups).forEach(r -> rebuilt.put(r.getHabitId(), r));
+                return rebuilt;
+            }
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, HabitRollup.class);
+            for (HabitRollup rollup : rollups) {
+                HabitRollup expected = current.getOrDefault(rollup.getHabitId(), new HabitRollup(rollup.getHabitId()));
+                bulk.replaceOne(unchanged(expected), rollup, FindAndReplaceOptions.options().upsert());
+            }
+            Set<Integer> lost = DocumentCompletionStore.executeUnordered(bulk);
+            List<String> retry = new ArrayList<>();
+            for (int i = 0; i < rollups.size(); i++) {
+                if (lost.contains(i)) {
+                    retry.add(pending.get(i));
+                } else {
+                    rebuilt.put(pending.get(i), rollups.get(i));
+                }
+            }
+            if (retry.isEmpty()) {
+                return rebuilt;
+            }
+            pending = retry;
+            current = new HashMap<>();
+            for (HabitRollup rollup : rollupRepository.findAllById(retry)) {
+                current.put(rollup.getHabitId(), rollup);
+            }
+        }
+    }
+
+    static LocalDate historyStart(LocalDate today) {
+        return today.minusDays(HabitService.MAX_HISTORY_DAYS - 1);
+    }
+
+    public static HabitRollup fromHistory(String habitId, DayBitSet days) {
+        HabitRollup rollup = new HabitRollup(habitId);
+        if (days == null) {
+            return rollup;
+        }
+        LocalDate last = days.getTo();
+        LocalDate weekStart = startOfWeek(last);
+        LocalDate monthStart = last.withDayOfMonth(1);
+        rollup.setLastCompletedDate(last);
+        rollup.setCurrentStreak(days.runEndingAt(last));
+        rollup.setLongestStreak(days.longestRun());
+        rollup.setWeekStart(weekStart);
+        rollup.setWeekCount(days.count(weekStart, weekStart.plusDays(6)));
+        rollup.setMonthStart(monthStart);
+        rollup.setMonthCount(days.count(monthStart, monthStart.plusMonths(1).minusDays(1)));
+        return rollup;
+    }
+
+    @Scheduled(cron = "${habitsync.rollups.rebuild-cron:-}")
+    public void rebuildAll() {
+        Query query = new Query();
+        query.fields().include("_id");
+        AtomicLong rebuilt = new AtomicLong();
+        try (Stream<Habit> habits = mongoTemplate.stream(query, Habit.class)) {
+            habits.forEach(h -> {
+                rebuild(h.getId());
+                rebuilt.incrementAndGet();
+            });
+        }
+        log.info("Rebuilt {} habit rollups", rebuilt.get());
+    }
+
+    private static Query unchanged(HabitRollup rollup) {
+        return query(where("_id").is(rollup.getHabitId())
+                .and("lastCompletedDate").is(rollup.getLastCompletedDate())
+                .and("currentStreak").is(rollup.getCurrentStreak())
+                .and("longestStreak").is(rollup.getLongestStreak())
+                .and("weekStart").is(rollup.getWeekStart())
+                .and("weekCount").is(rollup.getWeekCount())
+                .and("monthStart").is(rollup.getMonthStart())
+                .and("monthCount").is(rollup.getMonthCount()));
+    }
+
+    private static void bucket(Update update, String startField, String countField,
+                               LocalDate current, LocalDate target) {
+        if (current == null || target.isAfter(current)) {
+            update.set(startField, target).set(countField, 1);
+        } else if (target.equals(current)) {
+            update.inc(countField, 1);
+        }
+    }
+
+    private static LocalDate startOfWeek(LocalDate date) {
+        return date.with(DayOfWeek.MONDAY);
+    }
+}
@@ -2,32 +2,52 @@ package net.chetan.habitsync.service;
 
 import net.chetan.habitsync.dto.HabitDtos.*;
 import net.chetan.habitsync.model.Habit;
-import net.chetan.habitsync.model.HabitCompletion;
+import net.chetan.habitsync.model.HabitRollup;
 import net.chetan.habitsync.model.User;
-import net.chetan.habitsync.repository.HabitCompletionRepository;
 import net.chetan.habitsync.repository.HabitRepository;
+import net.chetan.habitsync.service.CompletionStore.CompletionEntry;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
 
-import java.time.DayOfWeek;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 public class HabitService {
 
+    static final int MAX_BATCH_SIZE = 500;
+    static final int MAX_HISTORY_DAYS = 3 * 366;
+
     private final HabitRepository habitRepository;
-    private final HabitCompletionRepository completionRepository;
+    private final CompletionStore completionStore;
+    private final HabitRollupService rollupService;
+    private final DataVersionService dataVersionService;
+    private final StatsRollupService statsRollupService;
 
     public HabitService(HabitRepository habitRepository,
-                        HabitCompletionRepository completionRepository) {
+                        CompletionStore completionStore,
+                        HabitRollupService rollupService,
+                        DataVersionService dataVersionService,
+                        StatsRollupService statsRollupService) {
         this.habitRepository = habitRepository;
-        this.completionRepository = completionRepository;
+        this.completionStore = completionStore;
+        this.rollupService = rollupService;
+        this.dataVersionService = dataVersionService;
+        this.statsRollupService = statsRollupService;
     }
 
     public List<HabitResponse> getHabitsForUser(User user) {
-        return habitRepository.findByUserIdAndArchivedFalse(user.getId()).stream()
-                .map(this::mapToResponse)
-                .toList();
+        return mapToResponses(habitRepository.findByUserIdAndArchivedFalse(user.getId()));
     }
 
     public HabitResponse createHabit(User user, HabitRequest request) {
@@ -39,8 +59,11 @@ public class HabitService {
         habit.setGoalPerWeek(request.goalPerWeek());
         habit.setReminderTime(request.reminderTime());
         habit.setMotivationalQuote(request.motivationalQuote());
+        habit.setUpdatedAt(Instant.now());
 
         Habit saved = habitRepository.save(habit);
+        rollupService.initialize(saved.getId());
+        dataVersionService.bump(user.getId());
         return mapToResponse(saved);
     }
 
@@ -52,33 +75,181 @@ public class HabitService {
         habit.setGoalPerWeek(request.goalPerWeek());
         habit.setReminderTime(request.reminderTime());
         habit.setMotivationalQuote(request.motivationalQuote());
-        return mapToResponse(habitRepository.save(habit));
+        habit.setUpdatedAt(Instant.now());
+        Habit saved = habitRepository.save(habit);
+        dataVersionService.bump(user.getId());
+        return mapToResponse(saved);
     }
 
     public void deleteHabit(User user, String habitId) {
         Habit habit = getHabitForUser(user, habitId);
         habit.setArchived(true);
+        habit.setUpdatedAt(Instant.now());
         habitRepository.save(habit);
+        dataVersionService.bump(user.getId());
     }
 
     public HabitResponse completeHabitToday(User user, String habitId, LocalDate date) {
         Habit habit = getHabitForUser(user, habitId);
         LocalDate targetDate = date != null ? date : LocalDate.now();
+        requireNotInFuture(user, targetDate);
 
-        HabitCompletion completion = completionRepository
-                .findByHabitIdAndDate(habit.getId(), targetDate)
-                .orElseGet(() -> {
-                    HabitCompletion c = new HabitCompletion();
-                    c.setHabitId(habit.getId());
-                    c.setDate(targetDate);
-                    return c;
-                });
-        completion.setCompleted(true);
-        completionRepository.save(completion);
+        if (completionStore.markCompleted(user.getId(), habit.getId(), targetDate)) {
+            rollupService.recordCompletion(habit.getId(), targetDate);
+            statsRollupService.recordCompletion(user.getId(), habit.getId(), targetDate);
+            dataVersionService.bump(user.getId());
+        }
 
         return mapToResponse(habit);
     }
 
+    /**
+     * Rejects a day after the user's today with 400. The user's zone rather than the server's
+     * decides, so a client ahead of the server can still complete its own today.
+     */
+    private static void requireNotInFuture(User user, LocalDate date) {
+        if (date.isAfter(LocalDate.now(TimeZones.zoneOf(user)))) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Date in the future");
+        }
+    }
+
+    /**
+     * Applies many day states at once: one ownership query for the whole batch, one unordered
+     * bulk write, then one rebuild of the rollups of the habits that had an entry applied. A
+     * later entry for the same habit and day replaces an earlier one. A day after the user's
+     * today fails the whole batch, as an oversized batch does.
+     */
+    public BatchCompletionResponse completeBatch(User user, List<BatchCompletionItem> items) {
+        if (items.size() > MAX_BATCH_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "At most " + MAX_BATCH_SIZE + " entries per batch");
+        }
+        for (BatchCompletionItem item : items) {
+            if (item.date() != null) {
+                requireNotInFuture(user, item.date());
+            }
+        }
+        LocalDate today = LocalDate.now();
+
+        Set<String> requested = items.stream()
+                .map(BatchCompletionItem::habitId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<String, Habit> owned = new HashMap<>();
+        habitRepository.findAllById(requested).forEach(h -> {
+            if (h.getUserId().equals(user.getId())) {
+                owned.put(h.getId(), h);
+            }
+        });
+
+        List<CompletionEntry> entries = new ArrayList<>();
+        Map<CompletionEntry, Integer> slots = new HashMap<>();
+        int[] slotOfItem = new int[items.size()];
+        for (int i = 0; i < items.size(); i++) {
+            BatchCompletionItem item = items.get(i);
+            if (!owned.containsKey(item.habitId())) {
+                slotOfItem[i] = -1;
+                continue;
+            }
+            LocalDate date = item.date() != null ? item.date() : today;
+            CompletionEntry entry = new CompletionEntry(item.habitId(), date, !Boolean.FALSE.equals(item.completed()));
+            // keyed by habit and day only, so a later entry overwrites the earlier one's slot
+            CompletionEntry key = new CompletionEntry(item.habitId(), date, true);
+            Integer slot = slots.get(key);
+            if (slot == null) {
+                slot = entries.size();
+                slots.put(key, slot);
+                entries.add(entry);
+            } else {
+                entries.set(slot, entry);
+            }
+            slotOfItem[i] = slot;
+        }
+
+        Set<Integer> failed = entries.isEmpty() ? Set.of() : completionStore.applyAll(user.getId(), entries);
+
+        List<BatchItemResult> results = new ArrayList<>();
+        Set<String> affected = new LinkedHashSet<>();
+        LocalDate first = null;
+        LocalDate last = null;
+        for (int i = 0; i < items.size(); i++) {
+            BatchCompletionItem item = items.get(i);
+            BatchItemStatus status;
+            if (slotOfItem[i] < 0) {
+                status = BatchItemStatus.NOT_FOUND;
+            } else if (failed.contains(slotOfItem[i])) {
+                status = BatchItemStatus.FAILED;
+            } else {
+                status = BatchItemStatus.APPLIED;
+                affected.add(item.habitId());
+                LocalDate applied = entries.get(slotOfItem[i]).date();
+                first = first == null || applied.isBefore(first) ? applied : first;
+                last = last == null || applied.isAfter(last) ? applied : last;
+            }
+            LocalDate date = slotOfItem[i] >= 0 ? entries.get(slotOfItem[i]).date() : item.date();
+            results.add(new BatchItemResult(i, item.habitId(), date, status));
+        }
+
+        Map<String, HabitRollup> rollups = affected.isEmpty() ? Map.of() : rollupService.rebuild(affected);
+        List<HabitResponse> habits = new ArrayList<>();
+        for (String habitId : affected) {
+            habits.add(toResponse(owned.get(habitId), rollups.get(habitId), today));
+        }
+        if (!affected.isEmpty()) {
+            statsRollupService.recomputeLater(user.getId(), affected, first, last);
+            dataVersionService.bump(user.getId());
+        }
+        return new BatchCompletionResponse(results, habits);
+    }
+
+    public HabitHistory getHistory(User user, String habitId, LocalDate from, LocalDate to) {
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = historyStart(from, end);
+        getHabitForUser(user, habitId);
+        return toHistory(habitId, completionStore.load(user.getId(), List.of(habitId), start, end).get(habitId));
+    }
+
+    /**
+     * History of all active habits of the user, read with a single range scan over their
+     * completions.
+     */
+    public List<HabitHistory> getHistoryForUser(User user, LocalDate from, LocalDate to) {
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = historyStart(from, end);
+        List<String> habitIds = habitRepository.findByUserIdAndArchivedFalse(user.getId()).stream()
+                .map(Habit::getId)
+                .toList();
+        Map<String, DayBitSet> days = completionStore.load(user.getId(), habitIds, start, end);
+        return habitIds.stream()
+                .map(id -> toHistory(id, days.get(id)))
+                .toList();
+    }
+
+    /**
+     * Defaults to the year ending at {@code end}.
+     */
+    private static LocalDate historyStart(LocalDate from, LocalDate end) {
+        LocalDate start = from != null ? from : end.minusDays(364);
+        if (end.isBefore(start)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "from must not be after to");
+        }
+        if (end.toEpochDay() - start.toEpochDay() >= MAX_HISTORY_DAYS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "At most " + MAX_HISTORY_DAYS + " days per request");
+        }
+        return start;
+    }
+
+    static HabitHistory toHistory(String habitId, DayBitSet days) {
+        return new HabitHistory(
+                habitId,
+                days.getFrom(),
+                days.getTo(),
+                days.count(days.getFrom(), days.getTo()),
+                Base64.getEncoder().encodeToString(days.toByteArray())
+        );
+    }
+
     private Habit getHabitForUser(User user, String id) {
         Habit habit = habitRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Habit not found"));
@@ -89,9 +260,19 @@ public class HabitService {
     }
 
     private HabitResponse mapToResponse(Habit habit) {
+        return mapToResponses(List.of(habit)).get(0);
+    }
+
+    private List<HabitResponse> mapToResponses(List<Habit> habits) {
         LocalDate today = LocalDate.now();
-        int streak = calculateStreak(habit, today);
-        int completionsThisWeek = countCompletionsThisWeek(habit, today);
+        Map<String, HabitRollup> rollups = rollupService.rollupsFor(
+                habits.stream().map(Habit::getId).toList());
+        return habits.stream()
+                .map(habit -> toResponse(habit, rollups.get(habit.getId()), today))
+                .toList();
+    }
+
+    static HabitResponse toResponse(Habit habit, HabitRollup rollup, LocalDate today) {
         return new HabitResponse(
                 habit.getId(),
                 habit.getName(),
@@ -100,34 +281,8 @@ public class HabitService {
                 habit.getGoalPerWeek(),
                 habit.getReminderTime(),
                 habit.getMotivationalQuote(),
-                streak,
-                completionsThisWeek
+                HabitRollupService.currentStreak(rollup, today),
+                HabitRollupService.completionsThisWeek(rollup, today)
         );
     }
-
-    private int calculateStreak(Habit habit, LocalDate today) {
-        int streak = 0;
-        LocalDate date = today;
-        while (true) {
-            HabitCompletion c = completionRepository
-                    .findByHabitIdAndDate(habit.getId(), date)
-                    .orElse(null);
-            if (c != null && c.isCompleted()) {
-                streak++;
-                date = date.minusDays(1);
-            } else {
-                break;
-            }
-        }
-        return streak;
-    }
-
-    private int countCompletionsThisWeek(Habit habit, LocalDate today) {
-        LocalDate startOfWeek = today.with(DayOfWeek.MONDAY);
-        return (int) completionRepository
-                .findByHabitIdAndDateBetween(habit.getId(), startOfWeek, today)
-                .stream()
-                .filter(HabitCompletion::isCompleted)
-                .count();
-    }
 }
@@ -0,0 +1,358 @@
+package net.chetan.habitsync.service;
+
+import net.chetan.habitsync.dto.ExportDtos.HabitRecord;
+import net.chetan.habitsync.dto.ImportDtos.*;
+import net.chetan.habitsync.model.Habit;
+import net.chetan.habitsync.model.Habit.Frequency;
+import net.chetan.habitsync.model.User;
+import net.chetan.habitsync.repository.HabitRepository;
+import net.chetan.habitsync.service.CompletionStore.CompletionEntry;
+import org.springframework.stereotype.Service;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Imports habit history from CSV or NDJSON, reading the body a line at a time. Completions are
+ * written with {@link CompletionStore#applyAll} in batches of {@link #BATCH_SIZE}, so memory is
+ * bounded by the batch and the number of habits rather than by the length of the history.
+ * The rollups of the touched habits are rebuilt together at the end, instead of once per day,
+ * and the stats rollups of the imported date range are recomputed in the background.
+ * <p>
+ * CSV needs a header naming a {@code habit} and a {@code date} column, and may have a
+ * {@code completed} column. NDJSON takes the records of {@code GET /api/export}, plus
+ * {@code {"habit": "...", "date": "..."}} lines. Habits are matched to the user's active habits
+ * by name, ignoring case, and created when there is no match.
+ */
+@Service
+public class ImportService {
+
+    static final int BATCH_SIZE = 1000;
+    static final int MAX_NEW_HABITS = 200;
+    static final int MAX_REPORTED_ERRORS = 20;
+
+    private final HabitRepository habitRepository;
+    private final CompletionStore completionStore;
+    private final HabitRollupService rollupService;
+    private final DataVersionService dataVersionService;
+    private final StatsRollupService statsRollupService;
+    private final JsonMapper jsonMapper;
+
+    public ImportService(HabitRepository habitRepository,
+                         CompletionStore completionStore,
+                         HabitRollupService rollupService,
+                         DataVersionService dataVersionService,
+                         StatsRollupService statsRollupService,
+                         JsonMapper jsonMapper) {
+        this.habitRepository = habitRepository;
+        this.completionStore = completionStore;
+        this.rollupService = rollupService;
+        this.dataVersionService = dataVersionService;
+        this.statsRollupService = statsRollupService;
+        this.jsonMapper = jsonMapper;
+    }
+
+    public ImportResponse importCsv(User user, InputStream body) {
+        Run run = new Run(user);
+        try (BufferedReader reader = reader(body)) {
+            String header = reader.readLine();
+            if (header == null) {
+                return run.finish();
+            }
+            List<String> columns = splitCsv(stripBom(header)).stream()
+                    .map(c -> c.trim().toLowerCase(Locale.ROOT))
+                    .toList();
+            int habitColumn = columns.indexOf("habit");
+            int dateColumn = columns.indexOf("date");
+            int completedColumn = columns.indexOf("completed");
+            if (habitColumn < 0 || dateColumn < 0) {
+                run.error(1, "Header must name a habit and a date column");
+                return run.finish();
+            }
+            long lineNumber = 1;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                List<String> fields = splitCsv(line);
+                if (fields.size() <= Math.max(habitColumn, dateColumn)) {
+                    run.error(lineNumber, "Missing columns");
+                    continue;
+                }
+                String completed = completedColumn >= 0 && completedColumn < fields.size()
+                        ? fields.get(completedColumn)
+                        : null;
+                run.completion(lineNumber, run.habitByName(lineNumber, fields.get(habitColumn)),
+                        fields.get(dateColumn), completed);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return run.finish();
+    }
+
+    public ImportResponse importNdjson(User user, InputStream body) {
+        Run run = new Run(user);
+        try (BufferedReader reader = reader(body)) {
+            long lineNumber = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (lineNumber == 1) {
+                    line = stripBom(line);
+                }
+                if (line.isBlank()) {
+                    continue;
+                }
+                JsonNode node;
+                try {
+                    node = jsonMapper.readTree(line);
+                } catch (JacksonException e) {
+                    run.error(lineNumber, "Invalid JSON");
+                    continue;
+                }
+                switch (text(node, "type", "completion")) {
+                    case "user" -> { }
+                    case "habit" -> {
+                        try {
+                            run.habitRecord(lineNumber, jsonMapper.treeToValue(node, HabitRecord.class));
+                        } catch (JacksonException e) {
+                            run.error(lineNumber, "Invalid habit");
+                        }
+                    }
+                    case "completion" -> {
+                        String habitId = node.has("habitId")
+                                ? run.habitById(lineNumber, text(node, "habitId", null))
+                                : run.habitByName(lineNumber, text(node, "habit", null));
+                        run.completion(lineNumber, habitId, text(node, "date", null), text(node, "completed", null));
+                    }
+                    default -> run.error(lineNumber, "Unknown record type");
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return run.finish();
+    }
+
+    /**
+     * State of one import: the user's habits by name, source IDs from export files mapped to
+     * the habits they became, and the pending batch of completions.
+     */
+    private class Run {
+
+        private final User user;
+        private final LocalDate today = LocalDate.now();
+        private final Map<String, String> habitsByName = new HashMap<>();
+        private final Map<String, String> habitsBySourceId = new HashMap<>();
+        private final Map<CompletionEntry, CompletionEntry> pending = new LinkedHashMap<>();
+        private final Set<String> touched = new LinkedHashSet<>();
+        private final List<ImportError> errors = new ArrayList<>();
+        private LocalDate first;
+        private LocalDate last;
+        private int habitsCreated;
+        private long imported;
+        private long failed;
+        private long skipped;
+
+        Run(User user) {
+            this.user = user;
+            habitRepository.findByUserIdAndArchivedFalse(user.getId())
+                    .forEach(h -> habitsByName.putIfAbsent(key(h.getName()), h.getId()));
+        }
+
+        void habitRecord(long line, HabitRecord record) {
+            if (record.name() == null || record.name().isBlank()) {
+                error(line, "Habit without a name");
+                return;
+            }
+            String habitId = record.archived() ? null : habitsByName.get(key(record.name()));
+            if (habitId == null) {
+                habitId = create(line, record);
+            }
+            if (habitId != null && record.id() != null) {
+                habitsBySourceId.put(record.id(), habitId);
+            }
+        }
+
+        String habitById(long line, String sourceId) {
+            String habitId = habitsBySourceId.get(sourceId);
+            if (habitId == null) {
+                error(line, "Unknown habitId");
+            }
+            return habitId;
+        }
+
+        String habitByName(long line, String name) {
+            if (name == null || name.isBlank()) {
+                error(line, "Missing habit");
+                return null;
+            }
+            String habitId = habitsByName.get(key(name));
+            return habitId != null
+                    ? habitId
+                    : create(line, new HabitRecord("habit", null, name.trim(), null, null, 0, null, null, false, null, null));
+        }
+
+        void completion(long line, String habitId, String date, String completed) {
+            if (habitId == null) {
+                return;
+            }
+            LocalDate day;
+            try {
+                day = LocalDate.parse(date == null ? "" : date.trim());
+            } catch (DateTimeParseException e) {
+                error(line, "Invalid date");
+                return;
+            }
+            if (day.isAfter(today)) {
+                error(line, "Date in the future");
+                return;
+            }
+            CompletionEntry entry = new CompletionEntry(habitId, day, parseCompleted(completed));
+            // a later line for the same habit and day replaces the pending one
+            pending.put(new CompletionEntry(habitId, day, true), entry);
+            touched.add(habitId);
+            first = first == null || day.isBefore(first) ? day : first;
+            last = last == null || day.isAfter(last) ? day : last;
+            if (pending.size() >= BATCH_SIZE) {
+                flush();
+            }
+        }
+
+        void error(long line, String message) {
+            skipped++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new ImportError(line, message));
+            }
+        }
+
+        ImportResponse finish() {
+            flush();
+            if (!touched.isEmpty()) {
+                rollupService.rebuild(touched);
+            }
+            if (first != null) {
+                statsRollupService.recomputeLater(user.getId(), List.copyOf(touched), first, last);
+            }
+            if (!touched.isEmpty()) {
+                dataVersionService.bump(user.getId());
+            }
+            return new ImportResponse(habitsCreated, imported, failed, skipped, errors);
+        }
+
+        private String create(long line, HabitRecord record) {
+            if (habitsCreated >= MAX_NEW_HABITS) {
+                error(line, "More than " + MAX_NEW_HABITS + " new habits");
+                return null;
+            }
+            Habit habit = new Habit();
+            habit.setUserId(user.getId());
+            habit.setName(record.name().trim());
+            habit.setIcon(record.icon());
+            habit.setFrequency(record.frequency() != null ? record.frequency() : Frequency.DAILY);
+            habit.setGoalPerWeek(record.goalPerWeek() > 0 ? record.goalPerWeek() : 7);
+            habit.setReminderTime(record.reminderTime());
+            habit.setMotivationalQuote(record.motivationalQuote());
+            habit.setArchived(record.archived());
+            habit.setUpdatedAt(Instant.now());
+            String habitId = habitRepository.save(habit).getId();
+            habitsCreated++;
+            touched.add(habitId);
+            if (!record.archived()) {
+                habitsByName.put(key(habit.getName()), habitId);
+            }
+            return habitId;
+        }
+
+        private void flush() {
+            if (pending.isEmpty()) {
+                return;
+            }
+            List<CompletionEntry> batch = new ArrayList<>(pending.values());
+            pending.clear();
+            int rejected = completionStore.applyAll(user.getId(), batch).size();
+            failed += rejected;
+            imported += batch.size() - rejected;
+        }
+    }
+
+    private static BufferedReader reader(InputStream body) {
+        return new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+    }
+
+    private static String stripBom(String line) {
+        return line.startsWith("\uFEFF") ? line.substring(1) : line;
+    }
+
+    private static String key(String name) {
+        return name.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static String text(JsonNode node, String field, String fallback) {
+        JsonNode value = node.get(field);
+        return value == null || value.isNull() ? fallback : value.asString();
+    }
+
+    static boolean parseCompleted(String value) {
+        if (value == null || value.isBlank()) {
+            return true;
+        }
+        return switch (value.trim().toLowerCase(Locale.ROOT)) {
+            case "false", "0", "no", "n" -> false;
+            default -> true;
+        };
+    }
+
+    /**
+     * Splits one CSV line, honouring double-quoted fields with {@code ""} escapes. Quoted line
+     * breaks are not supported.
+     */
+    static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
@@ -0,0 +1,24 @@
+package net.chetan.habitsync.service;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * In-process stand-in for a shared bus: delivers each invalidation to the subscribers of this
+ * instance only, which is all a single instance needs.
+ */
+public class LocalCacheInvalidationBus implements CacheInvalidationBus {
+
+    private final List<Consumer<String>> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void publish(String userId) {
+        listeners.forEach(l -> l.accept(userId));
+    }
+
+    @Override
+    public void subscribe(Consumer<String> listener) {
+        listeners.add(listener);
+    }
+}
@@ -0,0 +1,32 @@
+package net.chetan.habitsync.service;
+
+import net.chetan.habitsync.model.UserDataVersion;
+import net.chetan.habitsync.repository.ReactiveUserDataVersionRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+
+/**
+ * Non-blocking read side of {@link DataVersionService}; writes bump the version through the
+ * blocking service they already run on.
+ */
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveDataVersionService {
+
+    private final ReactiveUserDataVersionRepository versionRepository;
+
+    public ReactiveDataVersionService(ReactiveUserDataVersionRepository versionRepository) {
+        this.versionRepository = versionRepository;
+    }
+
+    public Mono<String> etag(String userId) {
+        LocalDate today = LocalDate.now();
+        return versionRepository.findById(userId)
+                .map(UserDataVersion::getVersion)
+                .defaultIfEmpty(0L)
+                .map(version -> DataVersionService.etag(version, today));
+    }
+}
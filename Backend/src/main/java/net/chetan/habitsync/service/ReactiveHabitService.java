@@ -0,0 +1,120 @@
+package net.chetan.habitsync.service;
+
+import net.chetan.habitsync.dto.HabitDtos.*;
+import net.chetan.habitsync.model.Habit;
+import net.chetan.habitsync.model.HabitRollup;
+import net.chetan.habitsync.model.User;
+import net.chetan.habitsync.repository.ReactiveHabitRepository;
+import net.chetan.habitsync.repository.ReactiveHabitRollupRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * Non-blocking counterpart of {@link HabitService}. Reads go through reactive repositories end
+ * to end. Writes are rare and carry the conditional rollup update, so they reuse the blocking
+ * service on the bounded elastic scheduler rather than duplicating that logic.
+ * <p>
+ * The reactive reads query {@code habit_completions} directly, so the document storage mode
+ * is required and startup fails under any other.
+ */
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveHabitService {
+
+    private final ReactiveHabitRepository habitRepository;
+    private final ReactiveHabitRollupRepository rollupRepository;
+    private final HabitService habitService;
+    private final HabitRollupService rollupService;
+
+    public ReactiveHabitService(ReactiveHabitRepository habitRepository,
+                                ReactiveHabitRollupRepository rollupRepository,
+                                HabitService habitService,
+                                HabitRollupService rollupService,
+                                @Value("${habitsync.completions.storage:documents}") String storage) {
+        if (!"documents".equals(storage)) {
+            throw new IllegalStateException("The reactive stack reads habit_completions directly and needs "
+                    + "habitsync.completions.storage=documents, not " + storage);
+        }
+        this.habitRepository = habitRepository;
+        this.rollupRepository = rollupRepository;
+        this.habitService = habitService;
+        this.rollupService = rollupService;
+    }
+
+    public Flux<HabitResponse> getHabitsForUser(User user) {
+        LocalDate today = LocalDate.now();
+        return habitRepository.findByUserIdAndArchivedFalse(user.getId())
+                .collectList()
+                .flatMapMany(habits -> rollupsFor(habits.stream().map(Habit::getId).toList())
+                        .flatMapIterable(rollups -> habits.stream()
+                                .map(h -> HabitService.toResponse(h, rollups.get(h.getId()), today))
+                                .toList()));
+    }
+
+    public Mono<HabitResponse> createHabit(User user, HabitRequest request) {
+        return blocking(() -> habitService.createHabit(user, request));
+    }
+
+    public Mono<HabitResponse> updateHabit(User user, String habitId, HabitRequest request) {
+        return blocking(() -> habitService.updateHabit(user, habitId, request));
+    }
+
+    public Mono<Void> deleteHabit(User user, String habitId) {
+        return blocking(() -> {
+            habitService.deleteHabit(user, habitId);
+            return null;
+        }).then();
+    }
+
+    public Mono<HabitResponse> completeHabitToday(User user, String habitId, LocalDate date) {
+        return blocking(() -> habitService.completeHabitToday(user, habitId, date));
+    }
+
+    public Mono<HabitHistory> getHistory(User user, String habitId, LocalDate from, LocalDate to) {
+        return blocking(() -> habitService.getHistory(user, habitId, from, to));
+    }
+
+    public Mono<List<HabitHistory>> getHistoryForUser(User user, LocalDate from, LocalDate to) {
+        return blocking(() -> habitService.getHistoryForUser(user, from, to));
+    }
+
+    public Mono<BatchCompletionResponse> completeBatch(User user, List<BatchCompletionItem> items) {
+        return blocking(() -> habitService.completeBatch(user, items));
+    }
+
+    /**
+     * Loads the rollups of all habits in one query. Missing ones are rare and are rebuilt by the
+     * blocking {@link HabitRollupService}, which reads through the {@link CompletionStore} and
+     * only replaces a rollup no concurrent completion has changed.
+     */
+    Mono<Map<String, HabitRollup>> rollupsFor(Collection<String> habitIds) {
+        return rollupRepository.findAllById(habitIds)
+                .collectMap(HabitRollup::getHabitId)
+                .flatMap(found -> {
+                    List<String> missing = habitIds.stream().filter(id -> !found.containsKey(id)).toList();
+                    if (missing.isEmpty()) {
+                        return Mono.just(found);
+                    }
+                    return blocking(() -> {
+                        Map<String, HabitRollup> rollups = new HashMap<>(found);
+                        rollups.putAll(rollupService.rollupsFor(missing));
+                        return rollups;
+                    });
+                });
+    }
+
+    private static <T> Mono<T> blocking(Callable<T> call) {
+        return Mono.fromCallable(call).subscribeOn(Schedulers.boundedElastic());
+    }
+}
@@ -0,0 +1,52 @@
+package net.chetan.habitsync.service;
+
+import net.chetan.habitsync.dto.StatsDtos.OverviewStats;
+import net.chetan.habitsync.model.Habit;
+import net.chetan.habitsync.model.User;
+import net.chetan.habitsync.repository.HabitCompletionRepositoryCustom.CompletionCounts;
+import net.chetan.habitsync.repository.ReactiveHabitCompletionRepository;
+import net.chetan.habitsync.repository.ReactiveHabitRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveStatsService {
+
+    private final ReactiveHabitRepository habitRepository;
+    private final ReactiveHabitCompletionRepository completionRepository;
+    private final ReactiveHabitService habitService;
+    private final boolean queryByUser;
+
+    public ReactiveStatsService(ReactiveHabitRepository habitRepository,
+                                ReactiveHabitCompletionRepository completionRepository,
+                                ReactiveHabitService habitService,
+                                @Value("${habitsync.completions.query-by-user:false}") boolean queryByUser) {
+        this.habitRepository = habitRepository;
+        this.completionRepository = completionRepository;
+        this.habitService = habitService;
+        this.queryByUser = queryByUser;
+    }
+
+    public Mono<OverviewStats> getOverview(User user) {
+        LocalDate today = LocalDate.now();
+        LocalDate weekStart = today.minusDays(6);
+        return habitRepository.findByUserIdAndArchivedFalse(user.getId())
+                .collectList()
+                .flatMap(habits -> {
+                    List<String> habitIds = habits.stream().map(Habit::getId).toList();
+                    return Mono.zip(
+                            completionRepository
+                                    .countCompleted(queryByUser ? user.getId() : null, habitIds,
+                                            weekStart.minusWeeks(12), weekStart, today)
+                                    .collectMap(CompletionCounts::habitId),
+                            habitService.rollupsFor(habitIds)
+                    ).map(t -> StatsService.toOverview(habits, t.getT1(), t.getT2(), today));
+                });
+    }
+}
@@ -0,0 +1,348 @@
+package net.chetan.habitsync.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import net.chetan.habitsync.dto.StatsDtos.*;
+import net.chetan.habitsync.model.Habit;
+import net.chetan.habitsync.model.StatsRollup;
+import net.chetan.habitsync.model.StatsRollup.Granularity;
+import net.chetan.habitsync.model.User;
+import net.chetan.habitsync.repository.HabitRepository;
+import net.chetan.habitsync.repository.StatsRollupRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.Period;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.group;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.match;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.newAggregation;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.project;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Weekly, monthly and yearly completion counts per habit and per user, kept in
+ * {@code stats_rollups} so long-range trends never read raw completions. A newly completed day
+ * is added in the background with one bulk write; batch writes and imports, whose individual
+ * transitions are not known, recompute the periods they touched from the completion store. A
+ * failed increment falls back to recomputing the day's periods the same way. A nightly rebuild
+ * recomputes everything, which also repairs counts that raced a recompute or whose fallback
+ * failed too; {@code habitsync.stats.rollups.failed} counts those.
+ */
+@Service
+public class StatsRollupService {
+
+    private static final Logger log = LoggerFactory.getLogger(StatsRollupService.class);
+
+    static final Pattern RANGE = Pattern.compile("(\\d{1,3})([wmy])");
+    static final Period MAX_RANGE = Period.ofYears(10);
+
+    private final StatsRollupRepository rollupRepository;
+    private final HabitRepository habitRepository;
+    private final CompletionStore completionStore;
+    private final MongoTemplate mongoTemplate;
+    private final AsyncTaskExecutor taskExecutor;
+    private final Counter incrementsFailed;
+    private final Counter recomputesFailed;
+
+    public StatsRollupService(StatsRollupRepository rollupRepository,
+                              HabitRepository habitRepository,
+                              CompletionStore completionStore,
+                              MongoTemplate mongoTemplate,
+                              @Qualifier("applicationTaskExecutor") AsyncTaskExecutor taskExecutor,
+                              MeterRegistry meterRegistry) {
+        this.rollupRepository = rollupRepository;
+        this.habitRepository = habitRepository;
+        this.completionStore = completionStore;
+        this.mongoTemplate = mongoTemplate;
+        this.taskExecutor = taskExecutor;
+        this.incrementsFailed = Counter.builder("habitsync.stats.rollups.failed")
+                .tag("operation", "increment")
+                .register(meterRegistry);
+        this.recomputesFailed = Counter.builder("habitsync.stats.rollups.failed")
+                .tag("operation", "recompute")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Reads only rollups: one document per period, so a two-year monthly chart is 24 documents.
+     */
+    public TrendsResponse trends(User user, String habitId, String granularity, String range) {
+        Granularity g = parseGranularity(granularity);
+        Period period = parseRange(range);
+        if (habitId != null) {
+            Habit habit = habitRepository.findById(habitId)
+                    .orElseThrow(() -> new RuntimeException("Habit not found"));
+            if (!habit.getUserId().equals(user.getId())) {
+                throw new RuntimeException("Forbidden");
+            }
+        }
+        LocalDate today = LocalDate.now();
+        LocalDate from = g.start(today.minus(period).plusDays(1));
+        LocalDate last = g.start(today);
+
+        Map<LocalDate, Integer> counts = new HashMap<>();
+        rollupRepository.findPeriods(user.getId(), g, habitId, from, last)
+                .forEach(r -> counts.put(r.getPeriodStart(), r.getCount()));
+        List<TrendPoint> points = new ArrayList<>();
+        for (LocalDate p = from; !p.isAfter(last); p = g.next(p)) {
+            points.add(new TrendPoint(p, counts.getOrDefault(p, 0)));
+        }
+        return new TrendsResponse(g.name().toLowerCase(Locale.ROOT), habitId, from, points);
+    }
+
+    public void recordCompletion(String userId, String habitId, LocalDate date) {
+        try {
+            taskExecutor.execute(() -> recordNow(userId, habitId, date));
+        } catch (TaskRejectedException e) {
+            incrementsFailed.increment();
+            log.warn("Stats rollup update for habit {} rejected; left to the nightly rebuild", habitId);
+        }
+    }
+
+    void recordNow(String userId, String habitId, LocalDate date) {
+        try {
+            increment(userId, habitId, date);
+        } catch (RuntimeException e) {
+            incrementsFailed.increment();
+            log.warn("Incrementing stats rollups for habit {} failed; recomputing {}", habitId, date, e);
+            recomputeNow(userId, List.of(habitId), date, date);
+        }
+    }
+
+    /**
+     * Recomputes, in the background, the periods of the given habits that overlap
+     * {@code [from, to]}, and the user's totals for the same periods.
+     */
+    public void recomputeLater(String userId, Collection<String> habitIds, LocalDate from, LocalDate to) {
+        try {
+            taskExecutor.execute(() -> recomputeNow(userId, habitIds, from, to));
+        } catch (TaskRejectedException e) {
+            recomputesFailed.increment();
+            log.warn("Stats rollup recompute for user {} rejected; left to the nightly rebuild", userId);
+        }
+    }
+
+    void recomputeNow(String userId, Collection<String> habitIds, LocalDate from, LocalDate to) {
+        try {
+            recompute(userId, habitIds, from, to);
+        } catch (RuntimeException e) {
+            recomputesFailed.increment();
+            log.warn("Recomputing stats rollups for user {} failed; left to the nightly rebuild", userId, e);
+        }
+    }
+
+    public void recompute(String userId, Collection<String> habitIds, LocalDate from, LocalDate to) {
+        if (habitIds.isEmpty()) {
+            return;
+        }
+        LocalDate start = coveredStart(from);
+        LocalDate end = coveredEnd(to);
+        Map<String, DayBitSet> days = completionStore.load(userId, habitIds, start, end);
+        BulkOperations bulk = newBulk();
+        days.forEach((habitId, habitDays) -> writePeriods(bulk, userId, habitId, habitDays, from, to));
+        bulk.execute();
+        sumUser(userId, from, to);
+    }
+
+    @Scheduled(cron = "${habitsync.stats-rollups.rebuild-cron:-}")
+    public void rebuildAll() {
+        Query query = new Query().with(Sort.by("userId"));
+        query.fields().include("userId");
+        AtomicLong users = new AtomicLong();
+        String[] currentUser = {null};
+        List<String> habitIds = new ArrayList<>();
+        try (Stream<Habit> habits = mongoTemplate.stream(query, Habit.class)) {
+            habits.forEach(h -> {
+                if (!h.getUserId().equals(currentUser[0])) {
+                    if (currentUser[0] != null) {
+                        rebuildUser(currentUser[0], habitIds);
+                        users.incrementAndGet();
+                    }
+                    currentUser[0] = h.getUserId();
+                    habitIds.clear();
+                }
+                habitIds.add(h.getId());
+            });
+        }
+        if (currentUser[0] != null) {
+            rebuildUser(currentUser[0], habitIds);
+            users.incrementAndGet();
+        }
+        log.info("Rebuilt stats rollups of {} users", users.get());
+    }
+
+    /**
+     * Recomputes every period of each habit's history, then the user's totals over the span of
+     * all of them.
+     */
+    void rebuildUser(String userId, Collection<String> habitIds) {
+        LocalDate first = null;
+        LocalDate last = null;
+        for (String habitId : habitIds) {
+            Optional<DayBitSet> history = completionStore.loadHistory(habitId, null);
+            if (history.isEmpty()) {
+                continue;
+            }
+            DayBitSet days = history.get();
+            BulkOperations bulk = newBulk();
+            writePeriods(bulk, userId, habitId, days, days.getFrom(), days.getTo());
+            bulk.execute();
+            first = first == null || days.getFrom().isBefore(first) ? days.getFrom() : first;
+            last = last == null || days.getTo().isAfter(last) ? days.getTo() : last;
+        }
+        if (first != null) {
+            sumUser(userId, first, last);
+        }
+    }
+
+    void increment(String userId, String habitId, LocalDate date) {
+        Instant now = Instant.now();
+        BulkOperations bulk = newBulk();
+        for (Granularity g : Granularity.values()) {
+            LocalDate periodStart = g.start(date);
+            for (String key : new String[]{habitId, null}) {
+                bulk.upsert(query(where("_id").is(StatsRollup.idFor(userId, key, g, periodStart))),
+                        keyFields(userId, key, g, periodStart).inc("count", 1).set("updatedAt", now));
+            }
+        }
+        bulk.execute();
+    }
+
+    /**
+     * Sets the habit's count for every period overlapping {@code [from, to]}. {@code days} must
+     * cover those periods entirely. Empty periods only update an existing document.
+     */
+    private static void writePeriods(BulkOperations bulk, String userId, String habitId, DayBitSet days,
+                                     LocalDate from, LocalDate to) {
+        Instant now = Instant.now();
+        for (Granularity g : Granularity.values()) {
+            for (LocalDate p = g.start(from); !p.isAfter(to); p = g.next(p)) {
+                int count = days.count(p, g.next(p).minusDays(1));
+                setCount(bulk, userId, habitId, g, p, count, now);
+            }
+        }
+    }
+
+    /**
+     * Sets the user's totals for the periods overlapping {@code [from, to]} to the sum of their
+     * habit rollups, with one aggregation.
+     */
+    private void sumUser(String userId, LocalDate from, LocalDate to) {
+        Aggregation sums = newAggregation(
+                match(where("userId").is(userId)
+                        .and("habitId").ne(null)
+                        .and("periodStart").gte(coveredStart(from)).lte(to)),
+                group("granularity", "periodStart").sum("count").as("count"),
+                project("granularity", "periodStart", "count"));
+        Map<String, Integer> totals = new HashMap<>();
+        for (PeriodTotal t : mongoTemplate.aggregate(sums, StatsRollup.class, PeriodTotal.class)) {
+            totals.put(StatsRollup.idFor(userId, null, t.granularity(), t.periodStart()), t.count());
+        }
+        Instant now = Instant.now();
+        BulkOperations bulk = newBulk();
+        for (Granularity g : Granularity.values()) {
+            for (LocalDate p = g.start(from); !p.isAfter(to); p = g.next(p)) {
+                setCount(bulk, userId, null, g, p,
+                        totals.getOrDefault(StatsRollup.idFor(userId, null, g, p), 0), now);
+            }
+        }
+        bulk.execute();
+    }
+
+    record PeriodTotal(Granularity granularity, LocalDate periodStart, int count) {}
+
+    private static void setCount(BulkOperations bulk, String userId, String habitId, Granularity g,
+                                 LocalDate periodStart, int count, Instant now) {
+        Query id = query(where("_id").is(StatsRollup.idFor(userId, habitId, g, periodStart)));
+        if (count > 0) {
+            bulk.upsert(id, keyFields(userId, habitId, g, periodStart).set("count", count).set("updatedAt", now));
+        } else {
+            bulk.updateOne(id, Update.update("count", 0).set("updatedAt", now));
+        }
+    }
+
+    private static Update keyFields(String userId, String habitId, Granularity g, LocalDate periodStart) {
+        return new Update()
+                .setOnInsert("userId", userId)
+                .setOnInsert("habitId", habitId)
+                .setOnInsert("granularity", g)
+                .setOnInsert("periodStart", periodStart);
+    }
+
+    /**
+     * First day of the earliest period overlapping {@code from}: the start of its year, or of
+     * its week when that week began in the previous year.
+     */
+    static LocalDate coveredStart(LocalDate from) {
+        LocalDate week = Granularity.WEEK.start(from);
+        LocalDate year = Granularity.YEAR.start(from);
+        return week.isBefore(year) ? week : year;
+    }
+
+    static LocalDate coveredEnd(LocalDate to) {
+        LocalDate week = Granularity.WEEK.next(Granularity.WEEK.start(to)).minusDays(1);
+        LocalDate year = Granularity.YEAR.next(Granularity.YEAR.start(to)).minusDays(1);
+        return week.isAfter(year) ? week : year;
+    }
+
+    private BulkOperations newBulk() {
+        return mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, StatsRollup.class);
+    }
+
+    static Granularity parseGranularity(String granularity) {
+        try {
+            return Granularity.valueOf(granularity.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException | NullPointerException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "granularity must be week, month or year");
+        }
+    }
+
+    /**
+     * Parses ranges like {@code 12w}, {@code 6m} or {@code 2y}, up to {@link #MAX_RANGE}.
+     */
+    static Period parseRange(String range) {
+        Matcher m = RANGE.matcher(range == null ? "" : range.toLowerCase(Locale.ROOT));
+        if (!m.matches()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "range must look like 12w, 6m or 2y");
+        }
+        int n = Integer.parseInt(m.group(1));
+        Period period = switch (m.group(2)) {
+            case "w" -> Period.ofWeeks(n);
+            case "m" -> Period.ofMonths(n);
+            default -> Period.ofYears(n);
+        };
+        LocalDate today = LocalDate.now();
+        if (n == 0 || today.minus(period).isBefore(today.minus(MAX_RANGE))) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "range must be between 1 day and 10 years");
+        }
+        return period;
+    }
+}
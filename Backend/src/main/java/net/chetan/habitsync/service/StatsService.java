@@ -2,58 +2,121 @@ package net.chetan.habitsync.service;
 
 import net.chetan.habitsync.dto.StatsDtos.*;
 import net.chetan.habitsync.model.Habit;
-import net.chetan.habitsync.model.HabitCompletion;
+import net.chetan.habitsync.model.HabitRollup;
 import net.chetan.habitsync.model.User;
-import net.chetan.habitsync.repository.HabitCompletionRepository;
+import net.chetan.habitsync.repository.HabitCompletionRepositoryCustom.CompletionCounts;
 import net.chetan.habitsync.repository.HabitRepository;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 @Service
 public class StatsService {
 
     private final HabitRepository habitRepository;
-    private final HabitCompletionRepository completionRepository;
+    private final CompletionStore completionStore;
+    private final HabitRollupService rollupService;
+    private final AsyncTaskExecutor taskExecutor;
+    private final boolean forkQueries;
 
     public StatsService(HabitRepository habitRepository,
-                        HabitCompletionRepository completionRepository) {
+                        CompletionStore completionStore,
+                        HabitRollupService rollupService,
+                        @Qualifier("applicationTaskExecutor") AsyncTaskExecutor taskExecutor,
+                        @Value("${spring.threads.virtual.enabled:false}") boolean forkQueries) {
         this.habitRepository = habitRepository;
-        this.completionRepository = completionRepository;
+        this.completionStore = completionStore;
+        this.rollupService = rollupService;
+        this.taskExecutor = taskExecutor;
+        this.forkQueries = forkQueries;
     }
 
     public OverviewStats getOverview(User user) {
         List<Habit> habits = habitRepository.findByUserIdAndArchivedFalse(user.getId());
+        List<String> habitIds = habits.stream().map(Habit::getId).toList();
         LocalDate today = LocalDate.now();
         LocalDate weekStart = today.minusDays(6);
 
+        Supplier<Map<String, CompletionCounts>> countQuery = () -> completionStore
+                .countCompleted(user.getId(), habitIds, weekStart.minusWeeks(12), weekStart, today)
+                .stream()
+                .collect(Collectors.toMap(CompletionCounts::habitId, Function.identity()));
+        Supplier<Map<String, HabitRollup>> rollupQuery = () -> rollupService.rollupsFor(habitIds);
+
+        Map<String, CompletionCounts> counts;
+        Map<String, HabitRollup> rollups;
+        if (forkQueries) {
+            // both queries only depend on the habit IDs; the fork is always joined before returning.
+            // A FutureTask, unlike a CompletableFuture, interrupts its worker when cancelled, and
+            // the Mongo driver gives up on an interrupted command by closing its connection.
+            Future<Map<String, CompletionCounts>> forked = taskExecutor.submit(countQuery::get);
+            try {
+                rollups = rollupQuery.get();
+            } catch (RuntimeException e) {
+                forked.cancel(true);
+                throw e;
+            }
+            counts = join(forked);
+        } else {
+            counts = countQuery.get();
+            rollups = rollupQuery.get();
+        }
+
+        return toOverview(habits, counts, rollups, today);
+    }
+
+    private static <T> T join(Future<T> forked) {
+        try {
+            return forked.get();
+        } catch (InterruptedException e) {
+            forked.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a forked query", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    static OverviewStats toOverview(List<Habit> habits,
+                                    Map<String, CompletionCounts> counts,
+                                    Map<String, HabitRollup> rollups,
+                                    LocalDate today) {
         long totalHabits = habits.size();
 
-        List<HabitCompletion> allCompletions = habits.stream()
-                .flatMap(h -> completionRepository
-                        .findByHabitIdAndDateBetween(h.getId(), weekStart.minusWeeks(12), today)
-                        .stream())
-                .toList();
+        long totalCompletions = counts.values().stream()
+                .mapToLong(CompletionCounts::total)
+                .sum();
 
-        long totalCompletions = allCompletions.stream()
-                .filter(HabitCompletion::isCompleted)
-                .count();
+        Map<String, Integer> streaks = rollups.values().stream()
+                .collect(Collectors.toMap(HabitRollup::getHabitId, r -> HabitRollupService.currentStreak(r, today)));
 
-        int longestStreak = habits.stream()
-                .mapToInt(h -> calcStreak(h, today))
+        int longestStreak = streaks.values().stream()
+                .mapToInt(Integer::intValue)
                 .max()
                 .orElse(0);
 
         List<HabitBreakdownItem> breakdown = habits.stream()
                 .map(h -> {
-                    int streak = calcStreak(h, today);
-                    long completedDays = completionRepository
-                            .findByHabitIdAndDateBetween(h.getId(), weekStart, today)
-                            .stream()
-                            .filter(HabitCompletion::isCompleted)
-                            .count();
+                    int streak = streaks.get(h.getId());
+                    CompletionCounts c = counts.get(h.getId());
+                    long completedDays = c != null ? c.recent() : 0;
                     double completionPercentage =
                             (completedDays / 7.0) * 100.0;
                     return new HabitBreakdownItem(
@@ -70,18 +133,4 @@ public class StatsService {
 
         return new OverviewStats(totalHabits, totalCompletions, longestStreak, breakdown);
     }
-
-    private int calcStreak(Habit habit, LocalDate today) {
-        int streak = 0;
-        LocalDate date = today;
-        while (true) {
-            HabitCompletion c = completionRepository
-                    .findByHabitIdAndDate(habit.getId(), date).orElse(null);
-            if (c != null && c.isCompleted()) {
-                streak++;
-                date = date.minusDays(1);
-            } else break;
-        }
-        return streak;
-    }
 }
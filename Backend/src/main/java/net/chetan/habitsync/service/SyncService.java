@@ -0,0 +1,141 @@
+package net.chetan.habitsync.service;
+
+import net.chetan.habitsync.dto.HabitDtos.HabitResponse;
+import net.chetan.habitsync.dto.SyncDtos.*;
+import net.chetan.habitsync.model.Habit;
+import net.chetan.habitsync.model.HabitRollup;
+import net.chetan.habitsync.model.User;
+import net.chetan.habitsync.repository.HabitRepository;
+import net.chetan.habitsync.service.CompletionStore.CompletionEntry;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Delta sync for clients that keep a local copy of their habits and completions. A cursor
+ * stands for a point in time, and a sync returns the habits and completions written at or
+ * after it, so the queries and the payload follow what changed rather than the size of the
+ * account. Without a valid cursor the whole active state is sent with {@code full} set, and
+ * the client replaces what it has.
+ */
+@Service
+public class SyncService {
+
+    /**
+     * How far each cursor is set back from the time of the sync, so a write stamped just before
+     * a sync but committed just after it is still picked up by the next one. Changes inside the
+     * overlap are sent twice; clients apply them idempotently.
+     */
+    static final Duration OVERLAP = Duration.ofSeconds(5);
+
+    private static final String CURSOR_PREFIX = "t1:";
+
+    private final HabitRepository habitRepository;
+    private final CompletionStore completionStore;
+    private final HabitRollupService rollupService;
+
+    public SyncService(HabitRepository habitRepository,
+                       CompletionStore completionStore,
+                       HabitRollupService rollupService) {
+        this.habitRepository = habitRepository;
+        this.completionStore = completionStore;
+        this.rollupService = rollupService;
+    }
+
+    public SyncResponse sync(User user, String cursor) {
+        String next = encodeCursor(Instant.now().minus(OVERLAP));
+        LocalDate today = LocalDate.now();
+        Instant since = decodeCursor(cursor);
+
+        if (since == null) {
+            List<Habit> active = habitRepository.findByUserIdAndArchivedFalse(user.getId());
+            List<CompletionEntry> completions = completionStore.changedSince(user.getId(), ids(active), null);
+            return response(next, true, active, List.of(), completions, today);
+        }
+
+        Map<String, Habit> habits = new LinkedHashMap<>();
+        List<String> archived = new ArrayList<>();
+        for (Habit habit : habitRepository.findByUserIdAndUpdatedAtGreaterThanEqual(user.getId(), since)) {
+            if (habit.isArchived()) {
+                archived.add(habit.getId());
+            } else {
+                habits.put(habit.getId(), habit);
+            }
+        }
+
+        // streaks and weekly counts move with the date, so a new day resends every active habit
+        boolean newDay = !LocalDate.ofInstant(since, ZoneId.systemDefault()).equals(today);
+        List<Habit> active = newDay
+                ? habitRepository.findByUserIdAndArchivedFalse(user.getId())
+                : habitRepository.findIdsByUserIdAndArchivedFalse(user.getId());
+        if (newDay) {
+            active.forEach(h -> habits.putIfAbsent(h.getId(), h));
+        }
+
+        List<CompletionEntry> completions = completionStore.changedSince(user.getId(), ids(active), since);
+        List<String> missing = completions.stream()
+                .map(CompletionEntry::habitId)
+                .filter(id -> !habits.containsKey(id))
+                .distinct()
+                .toList();
+        if (!missing.isEmpty()) {
+            habitRepository.findAllById(missing).forEach(h -> habits.put(h.getId(), h));
+        }
+        return response(next, false, habits.values(), archived, completions, today);
+    }
+
+    private SyncResponse response(String cursor,
+                                  boolean full,
+                                  Collection<Habit> habits,
+                                  List<String> archived,
+                                  List<CompletionEntry> completions,
+                                  LocalDate today) {
+        Map<String, HabitRollup> rollups = habits.isEmpty()
+                ? Map.of()
+                : rollupService.rollupsFor(ids(habits));
+        List<HabitResponse> responses = habits.stream()
+                .map(h -> HabitService.toResponse(h, rollups.get(h.getId()), today))
+                .toList();
+        List<CompletionChange> changes = completions.stream()
+                .map(c -> new CompletionChange(c.habitId(), c.date(), c.completed()))
+                .toList();
+        return new SyncResponse(cursor, full, responses, archived, changes);
+    }
+
+    private static List<String> ids(Collection<Habit> habits) {
+        return habits.stream().map(Habit::getId).toList();
+    }
+
+    static String encodeCursor(Instant at) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((CURSOR_PREFIX + at.toEpochMilli()).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Returns null for a missing or unreadable cursor, which makes the sync a full one.
+     */
+    static Instant decodeCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII);
+            if (!decoded.startsWith(CURSOR_PREFIX)) {
+                return null;
+            }
+            return Instant.ofEpochMilli(Long.parseLong(decoded.substring(CURSOR_PREFIX.length())));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package net.chetan.habitsync.service;
+
+import net.chetan.habitsync.model.User;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.DateTimeException;
+import java.time.ZoneId;
+
+/**
+ * Resolves the time zone a user's days are counted in, for anything that depends on the user's
+ * local date or time.
+ */
+public final class TimeZones {
+
+    private TimeZones() {
+    }
+
+    /**
+     * The user's zone, or the server's for users who never set one or whose stored zone is no
+     * longer known.
+     */
+    public static ZoneId zoneOf(User user) {
+        if (user.getTimeZone() != null) {
+            try {
+                return ZoneId.of(user.getTimeZone());
+            } catch (DateTimeException e) {
+                // fall through to the server zone
+            }
+        }
+        return ZoneId.systemDefault();
+    }
+
+    /**
+     * Normalizes a zone ID sent by a client, rejecting unknown ones with 400.
+     */
+    public static String validZone(String timeZone) {
+        try {
+            return ZoneId.of(timeZone).getId();
+        } catch (DateTimeException | NullPointerException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown time zone");
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package net.chetan.habitsync;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import de.bwaldvogel.mongo.MongoCollection;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import de.bwaldvogel.mongo.bson.Document;
+import io.netty.channel.Channel;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+import org.springframework.data.repository.core.support.RepositoryComposition.RepositoryFragments;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An in-process MongoDB for tests: a wire-protocol server over an in-memory backend, with a
+ * client and template connected to it.
+ */
+public final class InMemoryMongo implements AutoCloseable {
+
+    private final MongoServer server;
+    private final MongoClient client;
+    private final MongoTemplate template;
+
+    private InMemoryMongo() {
+        server = new MongoServer(new BitwiseMemoryBackend());
+        server.bind();
+        client = MongoClients.create(uri());
+        template = new MongoTemplate(client, "habitsync");
+    }
+
+    public static InMemoryMongo start() {
+        return new InMemoryMongo();
+    }
+
+    public String uri() {
+        return "mongodb://" + server.getLocalAddress().getHostString() + ":" + server.getLocalAddress().getPort();
+    }
+
+    public MongoTemplate template() {
+        return template;
+    }
+
+    /**
+     * A Spring Data repository over the template, with the given custom implementations.
+     */
+    public <T> T repository(Class<T> type, Object... fragments) {
+        return new MongoRepositoryFactory(template).getRepository(type, RepositoryFragments.just(fragments));
+    }
+
+    /**
+     * Creates the indexes declared on the given documents, as {@code IndexMigration} does.
+     */
+    public void createIndexes(Class<?>... documents) {
+        IndexResolver resolver = IndexResolver.create(template.getConverter().getMappingContext());
+        for (Class<?> document : documents) {
+            IndexOperations indexOps = template.indexOps(document);
+            resolver.resolveIndexFor(document).forEach(indexOps::createIndex);
+        }
+    }
+
+    @Override
+    public void close() {
+        client.close();
+        server.shutdownNow();
+    }
+
+    /**
+     * The in-memory backend has no {@code $bit} operator, which the bitmap completion store
+     * relies on. This applies it the slow way: each {@code $bit} is turned into a {@code $set}
+     * of the value it would produce on the matching document, one update at a time so updates
+     * of one batch see each other's bits. It is not atomic, which single-threaded tests do not
+     * need.
+     */
+    private static final class BitwiseMemoryBackend extends MemoryBackend {
+
+        @Override
+        public synchronized Document handleCommand(Channel channel, String database, String command, Document query) {
+            if (command.equalsIgnoreCase("findAndModify") && isBitwise(query.get("update"))) {
+                Document rewritten = query.clone();
+                rewritten.put("update", withBitsSet(database, query.get(command), (Document) query.get("query"),
+                        (Document) query.get("update")));
+                return super.handleCommand(channel, database, command, rewritten);
+            }
+            if (command.equalsIgnoreCase("update") && ((List<?>) query.get("updates")).stream()
+                    .anyMatch(update -> isBitwise(((Document) update).get("u")))) {
+                return updateOneByOne(channel, database, query);
+            }
+            return super.handleCommand(channel, database, command, query);
+        }
+
+        @SuppressWarnings("unchecked")
+        private Document updateOneByOne(Channel channel, String database, Document command) {
+            List<Document> updates = (List<Document>) command.get("updates");
+            boolean ordered = !Boolean.FALSE.equals(command.get("ordered"));
+            int matched = 0;
+            int modified = 0;
+            List<Document> upserted = new ArrayList<>();
+            List<Document> writeErrors = new ArrayList<>();
+            for (int i = 0; i < updates.size(); i++) {
+                Document update = updates.get(i).clone();
+                if (isBitwise(update.get("u"))) {
+                    update.put("u", withBitsSet(database, command.get("update"), (Document) update.get("q"),
+                            (Document) update.get("u")));
+                }
+                Document single = command.clone();
+                single.put("updates", List.of(update));
+                Document result = super.handleCommand(channel, database, "update", single);
+                matched += ((Number) result.getOrDefault("n", 0)).intValue();
+                modified += ((Number) result.getOrDefault("nModified", 0)).intValue();
+                for (Object each : (List<?>) result.getOrDefault("upserted", List.of())) {
+                    upserted.add(((Document) each).clone().append("index", i));
+                }
+                List<?> errors = (List<?>) result.getOrDefault("writeErrors", List.of());
+                for (Object each : errors) {
+                    writeErrors.add(((Document) each).clone().append("index", i));
+                }
+                if (ordered && !errors.isEmpty()) {
+                    break;
+                }
+            }
+            Document result = new Document("n", matched).append("nModified", modified);
+            if (!upserted.isEmpty()) {
+                result.append("upserted", upserted);
+            }
+            if (!writeErrors.isEmpty()) {
+                result.append("writeErrors", writeErrors);
+            }
+            return result.append("ok", 1.0);
+        }
+
+        private static boolean isBitwise(Object update) {
+            return update instanceof Document document && document.containsKey("$bit");
+        }
+
+        private Document withBitsSet(String database, Object collectionName, Document filter, Document update) {
+            MongoCollection<?> collection = resolveDatabase(database).resolveCollection((String) collectionName, false);
+            Document current = collection == null ? null
+                    : collection.handleQueryAsStream(filter).findFirst().orElse(null);
+            Document rewritten = update.clone();
+            Document bits = (Document) rewritten.remove("$bit");
+            Document set = rewritten.containsKey("$set") ? ((Document) rewritten.get("$set")).clone() : new Document();
+            for (Map.Entry<String, Object> field : bits.entrySet()) {
+                long value = valueAt(current, field.getKey());
+                for (Map.Entry<String, Object> op : ((Document) field.getValue()).entrySet()) {
+                    long operand = ((Number) op.getValue()).longValue();
+                    value = switch (op.getKey()) {
+                        case "and" -> value & operand;
+                        case "or" -> value | operand;
+                        case "xor" -> value ^ operand;
+                        default -> throw new IllegalArgumentException("Unknown $bit operation: " + op.getKey());
+                    };
+                }
+                set.put(field.getKey(), value);
+            }
+            rewritten.put("$set", set);
+            return rewritten;
+        }
+
+        private static long valueAt(Document document, String path) {
+            Object value = document;
+            for (String key : path.split("\\.")) {
+                if (!(value instanceof Document parent)) {
+                    return 0;
+                }
+                value = parent.get(key);
+            }
+            return value instanceof Number number ? number.longValue() : 0;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package net.chetan.habitsync.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+class HabitControllerQueryBudgetTest extends QueryBudgetTestSupport {
+
+    @Test
+    void listsHabitsWithinBudget() throws Exception {
+        assertWithinBudget("getAllHabits", get("/api/habits"));
+    }
+
+    @Test
+    void listsHabitsInThreeQueriesOnceTheUserIsCached() throws Exception {
+        assertWithinBudget(3, get("/api/habits"));
+    }
+
+    @Test
+    void readsTheHistoryOfAllHabitsWithinBudget() throws Exception {
+        assertWithinBudget("historyForUser", get("/api/habits/history"));
+    }
+
+    @Test
+    void readsTheHistoryOfOneHabitWithinBudget() throws Exception {
+        assertWithinBudget("history", get("/api/habits/{id}/history", habitIds.get(0)));
+    }
+
+    @Test
+    void completesTodayWithinBudget() throws Exception {
+        assertWithinBudget("complete", post("/api/habits/{id}/complete", habitIds.get(0)));
+    }
+
+    @Test
+    void completesABackdatedDayWithinBudget() throws Exception {
+        // habit 2 skips every other day, so the backdated day joins two runs
+        assertWithinBudget("complete", post("/api/habits/{id}/complete", habitIds.get(2))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"date\":\"" + TODAY.minusDays(3) + "\"}"));
+    }
+
+    @Test
+    void completesABatchAcrossEveryHabitWithinBudget() throws Exception {
+        StringBuilder items = new StringBuilder("[");
+        for (String habitId : habitIds) {
+            items.append(items.length() > 1 ? "," : "")
+                    .append("{\"habitId\":\"").append(habitId).append("\"},")
+                    .append("{\"habitId\":\"").append(habitId).append("\",\"date\":\"")
+                    .append(TODAY.minusDays(2)).append("\",\"completed\":false}");
+        }
+        items.append("]");
+
+        assertWithinBudget("completeBatch", post("/api/habits/completions:batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(items.toString()));
+    }
+
+    private void assertWithinBudget(String handler, RequestBuilder request) throws Exception {
+        assertWithinBudget(HabitController.class, handler, request);
+    }
+}
@@ -0,0 +1,141 @@
+package net.chetan.habitsync.controller;
+
+import jakarta.servlet.Filter;
+import net.chetan.habitsync.InMemoryMongo;
+import net.chetan.habitsync.dto.HabitDtos.HabitRequest;
+import net.chetan.habitsync.model.Habit.Frequency;
+import net.chetan.habitsync.model.User;
+import net.chetan.habitsync.monitoring.QueryAccountingFilter;
+import net.chetan.habitsync.monitoring.QueryBudgets;
+import net.chetan.habitsync.repository.UserRepository;
+import net.chetan.habitsync.security.JwtService;
+import net.chetan.habitsync.security.UserCache;
+import net.chetan.habitsync.service.DashboardCache;
+import net.chetan.habitsync.service.HabitService;
+import org.junit.jupiter.api.BeforeEach;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Runs endpoints against a seeded in-process MongoDB and checks that each stays within its
+ * {@code @QueryBudget}. Every test gets a fresh user with {@value #HABITS} habits and a month of
+ * completions. Caches are emptied before every request, and background work the request
+ * started is waited for, so the counts are the worst case.
+ */
+@SpringBootTest(properties = {
+        "habitsync.reminders.enabled=false",
+        "habitsync.rollups.rebuild-cron=-",
+        "habitsync.stats-rollups.rebuild-cron=-"
+})
+abstract class QueryBudgetTestSupport {
+
+    static final int HABITS = 20;
+    static final LocalDate TODAY = LocalDate.now();
+
+    // shared by every subclass, like the Spring context built on it, so it lives as long as the JVM
+    private static final InMemoryMongo mongo = InMemoryMongo.start();
+
+    @DynamicPropertySource
+    static void mongoUri(DynamicPropertyRegistry registry) {
+        registry.add("spring.mongodb.uri", () -> mongo.uri() + "/habitsync");
+        registry.add("spring.data.mongodb.uri", () -> mongo.uri() + "/habitsync");
+    }
+
+    @Autowired
+    private WebApplicationContext context;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private HabitService habitService;
+    @Autowired
+    private JwtService jwtService;
+    @Autowired
+    private UserCache userCache;
+    @Autowired
+    private DashboardCache dashboardCache;
+    @Autowired
+    @Qualifier("applicationTaskExecutor")
+    private ThreadPoolTaskExecutor taskExecutor;
+
+    private MockMvc mockMvc;
+    private String bearer;
+    User user;
+    final List<String> habitIds = new ArrayList<>();
+
+    @BeforeEach
+    void seed() throws Exception {
+        mockMvc = MockMvcBuilders.webAppContextSetup(context)
+                .addFilters(context.getBean(QueryAccountingFilter.class),
+                        context.getBean("springSecurityFilterChain", Filter.class))
+                .build();
+
+        user = new User();
+        user.setEmail(UUID.randomUUID() + "@example.com");
+        user.setName("Budget");
+        user.setTimeZone("UTC");
+        user = userRepository.save(user);
+        bearer = "Bearer " + jwtService.generateToken(user);
+        for (int i = 0; i < HABITS; i++) {
+            String habitId = habitService.createHabit(user,
+                    new HabitRequest("Habit " + i, null, Frequency.DAILY, 7, null, null)).id();
+            habitIds.add(habitId);
+            for (int daysAgo = 1; daysAgo <= 30; daysAgo += 1 + i % 3) {
+                habitService.completeHabitToday(user, habitId, TODAY.minusDays(daysAgo));
+            }
+        }
+        awaitBackgroundWork();
+    }
+
+    void assertWithinBudget(Class<?> controller, String handler, RequestBuilder request) throws Exception {
+        userCache.evict(user.getId());
+        dashboardCache.invalidate(user.getId());
+        QueryBudgets.assertWithin(controller, handler, perform(request));
+    }
+
+    /**
+     * Runs the request with cold caches, except for the authenticated user.
+     */
+    void assertWithinBudget(int maxCommands, RequestBuilder request) throws Exception {
+        mockMvc.perform(withAuth(request)).andExpect(status().isOk());
+        dashboardCache.invalidate(user.getId());
+        QueryBudgets.assertWithin(maxCommands, perform(request));
+    }
+
+    private Callable<Void> perform(RequestBuilder request) {
+        return () -> {
+            mockMvc.perform(withAuth(request)).andExpect(status().isOk());
+            awaitBackgroundWork();
+            return null;
+        };
+    }
+
+    private RequestBuilder withAuth(RequestBuilder request) {
+        return servletContext -> {
+            var built = request.buildRequest(servletContext);
+            built.addHeader("Authorization", bearer);
+            return built;
+        };
+    }
+
+    private void awaitBackgroundWork() throws InterruptedException {
+        while (taskExecutor.getActiveCount() > 0 || taskExecutor.getThreadPoolExecutor().getQueue().size() > 0) {
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package net.chetan.habitsync.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+class StatsControllerQueryBudgetTest extends QueryBudgetTestSupport {
+
+    @Test
+    void readsTheOverviewWithinBudget() throws Exception {
+        assertWithinBudget("getOverview", get("/api/stats/overview"));
+    }
+
+    @Test
+    void readsMonthlyTrendsWithinBudget() throws Exception {
+        assertWithinBudget("getTrends", get("/api/stats/trends"));
+    }
+
+    @Test
+    void readsTheWeeklyTrendsOfOneHabitWithinBudget() throws Exception {
+        assertWithinBudget("getTrends", get("/api/stats/trends")
+                .param("granularity", "week")
+                .param("range", "12w")
+                .param("habitId", habitIds.get(0)));
+    }
+
+    private void assertWithinBudget(String handler, RequestBuilder request) throws Exception {
+        assertWithinBudget(StatsController.class, handler, request);
+    }
+}
@@ -0,0 +1,48 @@
+package net.chetan.habitsync.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HabitCompletionBitmapTest {
+
+    @Test
+    void splitsBitsAtWordBoundaries() {
+        assertThat(HabitCompletionBitmap.wordKey(63)).isEqualTo("0");
+        assertThat(HabitCompletionBitmap.wordKey(64)).isEqualTo("1");
+        assertThat(HabitCompletionBitmap.wordKey(65)).isEqualTo("1");
+        assertThat(HabitCompletionBitmap.maskFor(63)).isEqualTo(Long.MIN_VALUE);
+        assertThat(HabitCompletionBitmap.maskFor(64)).isEqualTo(1L);
+        assertThat(HabitCompletionBitmap.maskFor(65)).isEqualTo(2L);
+    }
+
+    @Test
+    void fitsTheLastDayOfALeapYearInTheLastWord() {
+        LocalDate leapDay = LocalDate.of(2024, 12, 31);
+        LocalDate lastDay = LocalDate.of(2023, 12, 31);
+
+        assertThat(HabitCompletionBitmap.bitFor(leapDay)).isEqualTo(365);
+        assertThat(HabitCompletionBitmap.bitFor(lastDay)).isEqualTo(364);
+        assertThat(Integer.parseInt(HabitCompletionBitmap.wordKey(365))).isEqualTo(HabitCompletionBitmap.WORDS - 1);
+    }
+
+    @Test
+    void readsTheBitOfADayFromItsWord() {
+        Map<String, Long> words = new HashMap<>();
+        words.put("0", Long.MIN_VALUE);
+        words.put("1", 1L);
+        HabitCompletionBitmap bitmap = new HabitCompletionBitmap();
+        bitmap.setYear(2024);
+        bitmap.setWords(words);
+
+        assertThat(bitmap.isSet(LocalDate.ofYearDay(2024, 64))).isTrue();
+        assertThat(bitmap.isSet(LocalDate.ofYearDay(2024, 65))).isTrue();
+        assertThat(bitmap.isSet(LocalDate.ofYearDay(2024, 66))).isFalse();
+        assertThat(bitmap.isSet(LocalDate.ofYearDay(2024, 1))).isFalse();
+        assertThat(bitmap.isSet(LocalDate.ofYearDay(2024, 366))).isFalse();
+    }
+}
@@ -0,0 +1,47 @@
+package net.chetan.habitsync.monitoring;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+
+/**
+ * Test support for {@link QueryBudget}: runs a request, typically through MockMvc against a
+ * seeded database, and fails with an {@link AssertionError} when it issues more Mongo
+ * commands than the handler declares. Seed the user with many habits so an N+1 shows up.
+ *
+ * <pre>
+ * QueryBudgets.assertWithin(HabitController.class, "getAllHabits",
+ *         () -> mockMvc.perform(get("/api/habits").header("Authorization", bearer)));
+ * </pre>
+ */
+public final class QueryBudgets {
+
+    private QueryBudgets() {
+    }
+
+    public static <T> T assertWithin(Class<?> controller, String handlerMethod, Callable<T> request) throws Exception {
+        return assertWithin(budgetOf(controller, handlerMethod), request);
+    }
+
+    public static <T> T assertWithin(int maxCommands, Callable<T> request) throws Exception {
+        try (QueryAccounting scope = QueryAccounting.open()) {
+            T result = request.call();
+            if (scope.commands() > maxCommands) {
+                throw new AssertionError("Expected at most " + maxCommands + " Mongo commands but was " + scope);
+            }
+            return result;
+        }
+    }
+
+    static int budgetOf(Class<?> controller, String handlerMethod) {
+        Method method = Arrays.stream(controller.getMethods())
+                .filter(m -> m.getName().equals(handlerMethod))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException(controller.getSimpleName() + "." + handlerMethod));
+        QueryBudget budget = method.getAnnotation(QueryBudget.class);
+        if (budget == null) {
+            throw new IllegalArgumentException(controller.getSimpleName() + "." + handlerMethod + " has no @QueryBudget");
+        }
+        return budget.value();
+    }
+}
@@ -0,0 +1,144 @@
+package net.chetan.habitsync.reminder;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import net.chetan.habitsync.model.Habit;
+import net.chetan.habitsync.model.User;
+import net.chetan.habitsync.security.UserCache;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ReminderSchedulerTest {
+
+    private final List<Reminder> sent = new ArrayList<>();
+    private UserCache userCache;
+    private ReminderScheduler scheduler;
+    private long start;
+
+    @BeforeEach
+    void setUp() {
+        User user = new User();
+        ReflectionTestUtils.setField(user, "id", "user-1");
+        user.setTimeZone("UTC");
+        userCache = mock(UserCache.class);
+        when(userCache.get("user-1")).thenReturn(Optional.of(user));
+
+        scheduler = new ReminderScheduler(mock(MongoTemplate.class), userCache, sent::add,
+                new SimpleMeterRegistry(), true, Runnable::run);
+        // pin the wheel to a known minute, whenever the test happens to start
+        start = ReminderScheduler.epochMinute(Instant.now()) + 1;
+        scheduler.tick(minute(start));
+    }
+
+    @Test
+    void sendsAtTheReminderTimeAndReArmsForTheNextDay() {
+        save(habit("h1", start + 5));
+
+        scheduler.tick(minute(start + 4));
+        assertThat(sent).isEmpty();
+
+        scheduler.tick(minute(start + 5));
+        assertThat(sent).extracting(Reminder::habitId).containsExactly("h1");
+
+        scheduler.tick(minute(start + 24 * 60 + 5));
+        assertThat(sent).extracting(Reminder::habitId).containsExactly("h1", "h1");
+    }
+
+    @Test
+    void skipsTheStaleEntryOfAMovedReminder() {
+        save(habit("h1", start + 5));
+        save(habit("h1", start + 10));
+
+        scheduler.tick(minute(start + 5));
+        assertThat(sent).isEmpty();
+
+        scheduler.tick(minute(start + 10));
+        assertThat(sent).hasSize(1);
+    }
+
+    @Test
+    void skipsRemindersOfDeletedHabits() {
+        save(habit("h1", start + 5));
+        scheduler.onAfterDelete(new AfterDeleteEvent<>(new Document("_id", "h1"), Habit.class, "habits"));
+
+        scheduler.tick(minute(start + 5));
+        assertThat(sent).isEmpty();
+    }
+
+    @Test
+    void keepsGoingWhenTheSenderFails() {
+        List<String> attempts = new ArrayList<>();
+        ReminderScheduler failing = new ReminderScheduler(mock(MongoTemplate.class), userCache,
+                reminder -> {
+                    attempts.add(reminder.habitId());
+                    throw new IllegalStateException("push service down");
+                },
+                new SimpleMeterRegistry(), true, Runnable::run);
+        failing.tick(minute(start));
+        failing.onAfterSave(new AfterSaveEvent<>(habit("h1", start + 5), new Document(), "habits"));
+        failing.onAfterSave(new AfterSaveEvent<>(habit("h2", start + 5), new Document(), "habits"));
+
+        failing.tick(minute(start + 5));
+        failing.tick(minute(start + 24 * 60 + 5));
+
+        assertThat(attempts).containsExactlyInAnyOrder("h1", "h2", "h1", "h2");
+    }
+
+    @Test
+    void dropsAReminderWhenTheSendQueueIsFullAndReArmsIt() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        List<Runnable> queued = new ArrayList<>();
+        ReminderScheduler full = new ReminderScheduler(mock(MongoTemplate.class), userCache, sent::add,
+                meterRegistry, true, task -> {
+                    if (!queued.isEmpty()) {
+                        throw new RejectedExecutionException("queue full");
+                    }
+                    queued.add(task);
+                });
+        full.tick(minute(start));
+        full.onAfterSave(new AfterSaveEvent<>(habit("h1", start + 5), new Document(), "habits"));
+        full.onAfterSave(new AfterSaveEvent<>(habit("h2", start + 5), new Document(), "habits"));
+
+        full.tick(minute(start + 5));
+        assertThat(sent).isEmpty();
+        assertThat(meterRegistry.counter("habitsync.reminders.rejected").count()).isEqualTo(1);
+
+        queued.remove(0).run();
+        full.tick(minute(start + 24 * 60 + 5));
+        queued.remove(0).run();
+        assertThat(sent).hasSize(2);
+    }
+
+    private void save(Habit habit) {
+        scheduler.onAfterSave(new AfterSaveEvent<>(habit, new Document(), "habits"));
+    }
+
+    private static Habit habit(String id, long reminderMinute) {
+        Habit habit = new Habit();
+        ReflectionTestUtils.setField(habit, "id", id);
+        habit.setUserId("user-1");
+        habit.setName("Read");
+        habit.setReminderTime(LocalTime.ofInstant(minute(reminderMinute), ZoneOffset.UTC));
+        return habit;
+    }
+
+    private static Instant minute(long epochMinute) {
+        return Instant.ofEpochSecond(epochMinute * 60);
+    }
+}
@@ -0,0 +1,85 @@
+package net.chetan.habitsync.reminder;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TimingWheelTest {
+
+    // minute 50 of hour 1000
+    private static final long START = 1000 * 60 + 50;
+
+    @Test
+    void firesEntriesOfTheCurrentHourAtTheirMinute() {
+        TimingWheel<String> wheel = new TimingWheel<>(START);
+        wheel.schedule("a", START + 3);
+        wheel.schedule("b", START + 5);
+
+        assertThat(wheel.advanceTo(START + 2)).isEmpty();
+        assertThat(wheel.advanceTo(START + 3)).containsExactly("a");
+        assertThat(wheel.advanceTo(START + 9)).containsExactly("b");
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void cascadesTheHourSlotAtTheHourBoundary() {
+        TimingWheel<String> wheel = new TimingWheel<>(START);
+        long nextHour = 1001 * 60;
+        wheel.schedule("on the hour", nextHour);
+        wheel.schedule("ten past", nextHour + 10);
+        wheel.schedule("same minute, two hours on", nextHour + 60 + 10);
+
+        assertThat(wheel.advanceTo(nextHour - 1)).isEmpty();
+        assertThat(wheel.advanceTo(nextHour)).containsExactly("on the hour");
+        assertThat(wheel.advanceTo(nextHour + 9)).isEmpty();
+        assertThat(wheel.advanceTo(nextHour + 10)).containsExactly("ten past");
+        assertThat(wheel.size()).isEqualTo(1);
+        assertThat(wheel.advanceTo(nextHour + 70)).containsExactly("same minute, two hours on");
+    }
+
+    @Test
+    void catchesUpOnEveryMinuteMissedWithinAFullTurn() {
+        TimingWheel<String> wheel = new TimingWheel<>(START);
+        wheel.schedule("this hour", START + 5);
+        wheel.schedule("in three hours", START + 3 * 60);
+        wheel.schedule("in a day", START + 24 * 60);
+        wheel.schedule("after the pause", START + 30 * 60 + 1);
+
+        List<String> due = wheel.advanceTo(START + 30 * 60);
+
+        assertThat(due).containsExactly("this hour", "in three hours", "in a day");
+        assertThat(wheel.advanceTo(START + 30 * 60 + 1)).containsExactly("after the pause");
+    }
+
+    @Test
+    void releasesEverythingAfterAPauseOfAFullTurnOrMore() {
+        TimingWheel<String> wheel = new TimingWheel<>(START);
+        wheel.schedule("soon", START + 1);
+        wheel.schedule("last hour of the wheel", START + (TimingWheel.HOURS - 1) * 60L);
+
+        List<String> due = wheel.advanceTo(START + TimingWheel.HOURS * 60L + 45);
+
+        assertThat(due).containsExactlyInAnyOrder("soon", "last hour of the wheel");
+        assertThat(wheel.size()).isZero();
+        assertThat(wheel.currentMinute()).isEqualTo(START + TimingWheel.HOURS * 60L + 45);
+    }
+
+    @Test
+    void schedulesOverdueEntriesForTheNextAdvance() {
+        TimingWheel<String> wheel = new TimingWheel<>(START);
+        wheel.schedule("overdue", START - 30);
+
+        assertThat(wheel.advanceTo(START + 1)).containsExactly("overdue");
+    }
+
+    @Test
+    void rejectsEntriesBeyondTheHourWheel() {
+        TimingWheel<String> wheel = new TimingWheel<>(START);
+
+        assertThatThrownBy(() -> wheel.schedule("too far", START + TimingWheel.HOURS * 60L))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,52 @@
+package net.chetan.habitsync.service;
+
+import net.chetan.habitsync.InMemoryMongo;
+import net.chetan.habitsync.repository.HabitCompletionBitmapRepository;
+import net.chetan.habitsync.service.CompletionStore.CompletionEntry;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BitmapCompletionStoreTest extends CompletionStoreContract {
+
+    @Override
+    CompletionStore createStore(InMemoryMongo mongo) {
+        return new BitmapCompletionStore(mongo.repository(HabitCompletionBitmapRepository.class), mongo.template());
+    }
+
+    @Test
+    void matchesTheDocumentStoreOnARandomHistory() {
+        try (InMemoryMongo documents = InMemoryMongo.start()) {
+            CompletionStore reference = DocumentCompletionStoreTest.store(documents, false);
+            LocalDate first = LocalDate.of(2023, 1, 1);
+            LocalDate last = LocalDate.of(2025, 12, 31);
+            Random random = new Random(7);
+            List<CompletionEntry> entries = new ArrayList<>();
+            for (LocalDate d = first; !d.isAfter(last); d = d.plusDays(1)) {
+                if (random.nextInt(3) > 0) {
+                    entries.add(new CompletionEntry(random.nextBoolean() ? "h1" : "h2", d, random.nextInt(5) > 0));
+                }
+            }
+            for (int i = 0; i < entries.size(); i += 200) {
+                List<CompletionEntry> batch = entries.subList(i, Math.min(i + 200, entries.size()));
+                store.applyAll(USER, batch);
+                reference.applyAll(USER, batch);
+            }
+
+            for (String habitId : List.of("h1", "h2")) {
+                assertThat(setDays(load(habitId, first, last)))
+                        .containsExactlyElementsOf(setDays(reference.load(USER, List.of(habitId), first, last).get(habitId)));
+                assertThat(setDays(store.loadHistory(habitId, LocalDate.of(2024, 2, 29)).orElseThrow()))
+                        .containsExactlyElementsOf(setDays(reference.loadHistory(habitId, LocalDate.of(2024, 2, 29)).orElseThrow()));
+            }
+            assertThat(store.countCompleted(USER, List.of("h1", "h2"), first, LocalDate.of(2025, 6, 1), last))
+                    .containsExactlyInAnyOrderElementsOf(
+                            reference.countCompleted(USER, List.of("h1", "h2"), first, LocalDate.of(2025, 6, 1), last));
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package net.chetan.habitsync.service;
+
+import net.chetan.habitsync.InMemoryMongo;
+import net.chetan.habitsync.repository.HabitCompletionRepositoryCustom.CompletionCounts;
+import net.chetan.habitsync.service.CompletionStore.CompletionEntry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Behavior every {@link CompletionStore} shares, run against each storage mode by its
+ * subclasses.
+ */
+abstract class CompletionStoreContract {
+
+    static final String USER = "user-1";
+
+    InMemoryMongo mongo;
+    CompletionStore store;
+
+    abstract CompletionStore createStore(InMemoryMongo mongo);
+
+    @BeforeEach
+    void startStore() {
+        mongo = InMemoryMongo.start();
+        store = createStore(mongo);
+    }
+
+    @AfterEach
+    void stopStore() {
+        mongo.close();
+    }
+
+    @Test
+    void reportsOnlyTheFirstCompletionOfADay() {
+        LocalDate day = LocalDate.of(2025, 6, 1);
+
+        assertThat(store.markCompleted(USER, "h1", day)).isTrue();
+        assertThat(store.markCompleted(USER, "h1", day)).isFalse();
+        assertThat(store.markCompleted(USER, "h2", day)).isTrue();
+    }
+
+    @Test
+    void keepsNeighbouringDaysApartAcrossWordBoundaries() {
+        // 2024 is a leap year: day 366 is bit 365 of the last word
+        List<LocalDate> days = Stream.of(64, 65, 128, 129, 192, 193, 366)
+                .map(n -> LocalDate.ofYearDay(2024, n))
+                .toList();
+        days.forEach(d -> store.markCompleted(USER, "h1", d));
+
+        DayBitSet loaded = load("h1", LocalDate.of(2024, 1, 1), LocalDate.of(2024, 12, 31));
+
+        assertThat(setDays(loaded)).containsExactlyElementsOf(days);
+    }
+
+    @Test
+    void loadsARangeAcrossTheYearBoundary() {
+        LocalDate lastOfNonLeapYear = LocalDate.of(2023, 12, 31);
+        store.markCompleted(USER, "h1", LocalDate.of(2023, 12, 29));
+        store.markCompleted(USER, "h1", lastOfNonLeapYear);
+        store.markCompleted(USER, "h1", LocalDate.of(2024, 1, 1));
+        store.markCompleted(USER, "h1", LocalDate.of(2024, 1, 3));
+
+        DayBitSet loaded = load("h1", LocalDate.of(2023, 12, 30), LocalDate.of(2024, 1, 2));
+
+        assertThat(setDays(loaded)).containsExactly(lastOfNonLeapYear, LocalDate.of(2024, 1, 1));
+        assertThat(loaded.getFrom()).isEqualTo(LocalDate.of(2023, 12, 30));
+        assertThat(loaded.getTo()).isEqualTo(LocalDate.of(2024, 1, 2));
+    }
+
+    @Test
+    void loadsEveryRequestedHabitEvenWithoutCompletions() {
+        store.markCompleted(USER, "h1", LocalDate.of(2025, 2, 1));
+
+        var loaded = store.load(USER, List.of("h1", "h2"), LocalDate.of(2025, 1, 1), LocalDate.of(2025, 3, 1));
+
+        assertThat(loaded.get("h1").count(LocalDate.of(2025, 1, 1), LocalDate.of(2025, 3, 1))).isEqualTo(1);
+        assertThat(loaded.get("h2").count(LocalDate.of(2025, 1, 1), LocalDate.of(2025, 3, 1))).isZero();
+    }
+
+    @Test
+    void boundsTheHistoryByTheCompletionsFound() {
+        store.markCompleted(USER, "h1", LocalDate.of(2023, 3, 1));
+        store.markCompleted(USER, "h1", LocalDate.of(2024, 7, 4));
+        store.markCompleted(USER, "h1", LocalDate.of(2025, 1, 10));
+
+        DayBitSet all = store.loadHistory("h1", null).orElseThrow();
+        assertThat(all.getFrom()).isEqualTo(LocalDate.of(2023, 3, 1));
+        assertThat(all.getTo()).isEqualTo(LocalDate.of(2025, 1, 10));
+        assertThat(setDays(all)).hasSize(3);
+
+        DayBitSet recent = store.loadHistory("h1", LocalDate.of(2024, 1, 1)).orElseThrow();
+        assertThat(recent.getFrom()).isEqualTo(LocalDate.of(2024, 7, 4));
+        assertThat(setDays(recent)).containsExactly(LocalDate.of(2024, 7, 4), LocalDate.of(2025, 1, 10));
+
+        assertThat(store.loadHistory("h1", LocalDate.of(2025, 1, 11))).isEmpty();
+        assertThat(store.loadHistory("h2", null)).isEmpty();
+    }
+
+    @Test
+    void loadsTheHistoriesOfManyHabitsAtOnce() {
+        store.markCompleted(USER, "h1", LocalDate.of(2023, 12, 31));
+        store.markCompleted(USER, "h1", LocalDate.of(2024, 2, 1));
+        store.markCompleted(USER, "h2", LocalDate.of(2024, 3, 5));
+        store.markCompleted(USER, "h3", LocalDate.of(2023, 6, 1));
+        store.markCompleted(USER, "other", LocalDate.of(2024, 3, 5));
+
+        Map<String, DayBitSet> histories = store.loadHistories(List.of("h1", "h2", "h3", "h4"),
+                LocalDate.of(2024, 1, 1));
+
+        assertThat(histories).containsOnlyKeys("h1", "h2");
+        assertThat(setDays(histories.get("h1"))).containsExactly(LocalDate.of(2024, 2, 1));
+        assertThat(setDays(histories.get("h2"))).containsExactly(LocalDate.of(2024, 3, 5));
+        assertThat(store.loadHistories(List.of("h1", "h3"), null)).containsOnlyKeys("h1", "h3");
+    }
+
+    @Test
+    void appliesCompletedAndClearedDaysInOneBatch() {
+        LocalDate d1 = LocalDate.of(2025, 5, 1);
+        LocalDate d2 = LocalDate.of(2025, 5, 2);
+        LocalDate neverDone = LocalDate.of(2025, 5, 3);
+
+        assertThat(store.applyAll(USER, List.of(
+                new CompletionEntry("h1", d1, true),
+                new CompletionEntry("h1", d2, true),
+                new CompletionEntry("h1", neverDone, false)))).isEmpty();
+        assertThat(setDays(load("h1", d1, neverDone))).containsExactly(d1, d2);
+
+        assertThat(store.applyAll(USER, List.of(new CompletionEntry("h1", d1, false)))).isEmpty();
+        assertThat(setDays(load("h1", d1, neverDone))).containsExactly(d2);
+        assertThat(store.loadHistory("h1", null).orElseThrow().getFrom()).isEqualTo(d2);
+    }
+
+    @Test
+    void streamsCompletedDaysByHabitThenDate() {
+        store.markCompleted(USER, "h2", LocalDate.of(2024, 1, 5));
+        store.markCompleted(USER, "h1", LocalDate.of(2025, 1, 2));
+        store.markCompleted(USER, "h1", LocalDate.of(2024, 12, 31));
+        store.markCompleted(USER, "h2", LocalDate.of(2023, 8, 9));
+
+        List<CompletionEntry> streamed;
+        try (Stream<CompletionEntry> entries = store.streamCompleted(USER, List.of("h1", "h2"))) {
+            streamed = entries.toList();
+        }
+
+        assertThat(streamed).containsExactly(
+                new CompletionEntry("h1", LocalDate.of(2024, 12, 31), true),
+                new CompletionEntry("h1", LocalDate.of(2025, 1, 2), true),
+                new CompletionEntry("h2", LocalDate.of(2023, 8, 9), true),
+                new CompletionEntry("h2", LocalDate.of(2024, 1, 5), true));
+    }
+
+    @Test
+    void countsTheWindowAndTheRecentDays() {
+        LocalDate end = LocalDate.of(2025, 3, 10);
+        LocalDate recentStart = end.minusDays(6);
+        LocalDate windowStart = recentStart.minusWeeks(12);
+        store.markCompleted(USER, "h1", windowStart.minusDays(1));
+        store.markCompleted(USER, "h1", windowStart);
+        store.markCompleted(USER, "h1", recentStart.minusDays(1));
+        store.markCompleted(USER, "h1", recentStart);
+        store.markCompleted(USER, "h1", end);
+        store.markCompleted(USER, "h1", end.plusDays(1));
+
+        List<CompletionCounts> counts = store.countCompleted(USER, List.of("h1", "h2"), windowStart, recentStart, end);
+
+        assertThat(counts).containsExactly(new CompletionCounts("h1", 4, 2));
+    }
+
+    @Test
+    void reportsEveryCompletedDayAndTheChangesSinceAnInstant() {
+        LocalDate d1 = LocalDate.of(2025, 4, 1);
+        LocalDate d2 = LocalDate.of(2025, 4, 2);
+        store.markCompleted(USER, "h1", d1);
+        store.markCompleted(USER, "h1", d2);
+
+        assertThat(store.changedSince(USER, List.of("h1"), null)).containsExactlyInAnyOrder(
+                new CompletionEntry("h1", d1, true),
+                new CompletionEntry("h1", d2, true));
+
+        Instant since = Instant.now();
+        store.applyAll(USER, List.of(new CompletionEntry("h1", d1, false)));
+
+        assertThat(store.changedSince(USER, List.of("h1"), since))
+                .contains(new CompletionEntry("h1", d1, false))
+                .doesNotContain(new CompletionEntry("h1", d1, true));
+    }
+
+    DayBitSet load(String habitId, LocalDate start, LocalDate end) {
+        return store.load(USER, List.of(habitId), start, end).get(habitId);
+    }
+
+    static List<LocalDate> setDays(DayBitSet days) {
+        List<LocalDate> set = new ArrayList<>();
+        for (LocalDate d = days.getFrom(); !d.isAfter(days.getTo()); d = d.plusDays(1)) {
+            if (days.get(d)) {
+                set.add(d);
+            }
+        }
+        return set;
+    }
+}
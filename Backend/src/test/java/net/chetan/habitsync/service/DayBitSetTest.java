@@ -0,0 +1,91 @@
+package net.chetan.habitsync.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DayBitSetTest {
+
+    private static final LocalDate START = LocalDate.of(2024, 2, 27);
+
+    @Test
+    void ignoresDaysOutsideTheRange() {
+        DayBitSet days = new DayBitSet(START, START.plusDays(4));
+        days.set(START.minusDays(1));
+        days.set(START.plusDays(5));
+        days.set(START.plusDays(2));
+
+        assertThat(days.length()).isEqualTo(5);
+        assertThat(days.get(START.minusDays(1))).isFalse();
+        assertThat(days.get(START.plusDays(2))).isTrue();
+        assertThat(days.count(START.minusYears(1), START.plusYears(1))).isEqualTo(1);
+    }
+
+    @Test
+    void countsAcrossTheLeapDay() {
+        DayBitSet days = new DayBitSet(START, LocalDate.of(2024, 3, 2));
+        days.set(LocalDate.of(2024, 2, 28));
+        days.set(LocalDate.of(2024, 2, 29));
+        days.set(LocalDate.of(2024, 3, 1));
+
+        assertThat(days.length()).isEqualTo(5);
+        assertThat(days.count(LocalDate.of(2024, 2, 29), LocalDate.of(2024, 3, 1))).isEqualTo(2);
+        assertThat(days.count(LocalDate.of(2024, 3, 2), LocalDate.of(2024, 2, 29))).isZero();
+    }
+
+    @Test
+    void measuresRunsAcrossTheYearBoundary() {
+        DayBitSet days = new DayBitSet(LocalDate.of(2023, 12, 1), LocalDate.of(2024, 1, 31));
+        for (LocalDate d = LocalDate.of(2023, 12, 29); !d.isAfter(LocalDate.of(2024, 1, 2)); d = d.plusDays(1)) {
+            days.set(d);
+        }
+        days.set(LocalDate.of(2024, 1, 10));
+        days.set(LocalDate.of(2024, 1, 11));
+
+        assertThat(days.runEndingAt(LocalDate.of(2024, 1, 2))).isEqualTo(5);
+        assertThat(days.runEndingAt(LocalDate.of(2024, 1, 1))).isEqualTo(4);
+        assertThat(days.runEndingAt(LocalDate.of(2024, 1, 3))).isZero();
+        assertThat(days.runEndingAt(LocalDate.of(2024, 1, 11))).isEqualTo(2);
+        assertThat(days.longestRun()).isEqualTo(5);
+    }
+
+    @Test
+    void countsARunFromTheFirstDayOfTheRange() {
+        DayBitSet days = new DayBitSet(START, START.plusDays(9));
+        days.set(START);
+        days.set(START.plusDays(1));
+
+        assertThat(days.runEndingAt(START.plusDays(1))).isEqualTo(2);
+        assertThat(days.longestRun()).isEqualTo(2);
+    }
+
+    @Test
+    void buildsTheSmallestRangeHoldingTheDays() {
+        DayBitSet days = DayBitSet.of(List.of(
+                LocalDate.of(2024, 1, 1), LocalDate.of(2023, 12, 31), LocalDate.of(2024, 3, 1))).orElseThrow();
+
+        assertThat(days.getFrom()).isEqualTo(LocalDate.of(2023, 12, 31));
+        assertThat(days.getTo()).isEqualTo(LocalDate.of(2024, 3, 1));
+        assertThat(days.count(days.getFrom(), days.getTo())).isEqualTo(3);
+        assertThat(DayBitSet.of(List.of())).isEmpty();
+    }
+
+    @Test
+    void packsDaysLittleEndianWithoutTrailingEmptyBytes() {
+        DayBitSet days = new DayBitSet(START, START.plusDays(99));
+        days.set(START);
+        days.set(START.plusDays(9));
+
+        assertThat(days.toByteArray()).containsExactly(0x01, 0x02);
+    }
+
+    @Test
+    void rejectsARangeEndingBeforeItStarts() {
+        assertThatThrownBy(() -> new DayBitSet(START, START.minusDays(1)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
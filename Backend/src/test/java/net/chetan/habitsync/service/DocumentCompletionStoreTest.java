@@ -0,0 +1,31 @@
+package net.chetan.habitsync.service;
+
+import net.chetan.habitsync.InMemoryMongo;
+import net.chetan.habitsync.model.HabitCompletion;
+import net.chetan.habitsync.repository.HabitCompletionRepository;
+import net.chetan.habitsync.repository.HabitCompletionRepositoryImpl;
+import org.junit.jupiter.api.Nested;
+
+class DocumentCompletionStoreTest extends CompletionStoreContract {
+
+    @Override
+    CompletionStore createStore(InMemoryMongo mongo) {
+        return store(mongo, false);
+    }
+
+    static DocumentCompletionStore store(InMemoryMongo mongo, boolean queryByUser) {
+        mongo.createIndexes(HabitCompletion.class);
+        HabitCompletionRepository repository = mongo.repository(HabitCompletionRepository.class,
+                new HabitCompletionRepositoryImpl(mongo.template()));
+        return new DocumentCompletionStore(repository, mongo.template(), queryByUser);
+    }
+
+    @Nested
+    class QueryByUser extends CompletionStoreContract {
+
+        @Override
+        CompletionStore createStore(InMemoryMongo mongo) {
+            return store(mongo, true);
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package net.chetan.habitsync.service;
+
+import net.chetan.habitsync.InMemoryMongo;
+import net.chetan.habitsync.model.HabitRollup;
+import net.chetan.habitsync.repository.HabitRollupRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class HabitRollupServiceTest {
+
+    private static final String USER = "user-1";
+    private static final String HABIT = "h1";
+    private static final LocalDate TODAY = LocalDate.now();
+
+    private InMemoryMongo mongo;
+    private CompletionStore completionStore;
+    private HabitRollupRepository rollupRepository;
+    private HabitRollupService service;
+
+    @BeforeEach
+    void setUp() {
+        mongo = InMemoryMongo.start();
+        completionStore = DocumentCompletionStoreTest.store(mongo, false);
+        rollupRepository = mock(HabitRollupRepository.class, delegatesTo(mongo.repository(HabitRollupRepository.class)));
+        service = spy(new HabitRollupService(rollupRepository, completionStore, mongo.template()));
+        service.initialize(HABIT);
+    }
+
+    @AfterEach
+    void tearDown() {
+        mongo.close();
+    }
+
+    @Test
+    void appliesCompletionsInOrderWithoutRebuilding() {
+        for (int daysAgo = 9; daysAgo >= 0; daysAgo--) {
+            if (daysAgo != 4) {
+                complete(TODAY.minusDays(daysAgo));
+            }
+        }
+
+        verify(service, never()).rebuild(HABIT);
+        assertMatchesFullRecompute();
+        assertThat(rollup().getCurrentStreak()).isEqualTo(4);
+        assertThat(rollup().getLongestStreak()).isEqualTo(5);
+    }
+
+    @Test
+    void joinsTwoRunsWithABackdatedDay() {
+        List.of(6, 5, 4, 2, 1, 0).forEach(daysAgo -> complete(TODAY.minusDays(daysAgo)));
+        assertThat(rollup().getLongestStreak()).isEqualTo(3);
+
+        complete(TODAY.minusDays(3));
+
+        verify(service, never()).rebuild(HABIT);
+        assertMatchesFullRecompute();
+        assertThat(rollup().getCurrentStreak()).isEqualTo(7);
+        assertThat(rollup().getLongestStreak()).isEqualTo(7);
+    }
+
+    @Test
+    void keepsTheLongestStreakWhenABackdatedDayJoinsAShorterRun() {
+        List.of(20, 19, 18, 17, 10, 8, 0).forEach(daysAgo -> complete(TODAY.minusDays(daysAgo)));
+
+        complete(TODAY.minusDays(9));
+
+        assertMatchesFullRecompute();
+        assertThat(rollup().getCurrentStreak()).isEqualTo(1);
+        assertThat(rollup().getLongestStreak()).isEqualTo(4);
+    }
+
+    @Test
+    void zeroesTheStreakAndCountsWhenABackdatedDayIsOlderThanTheHistoryWindow() {
+        LocalDate lastDone = HabitRollupService.historyStart(TODAY).minusDays(10);
+        complete(lastDone);
+
+        complete(lastDone.minusDays(1));
+
+        verify(service, never()).rebuild(HABIT);
+        assertThat(rollup().getLastCompletedDate()).isEqualTo(lastDone);
+        assertThat(rollup().getCurrentStreak()).isZero();
+        assertThat(rollup().getLongestStreak()).isEqualTo(1);
+        assertThat(rollup().getWeekCount()).isZero();
+        assertThat(rollup().getMonthCount()).isZero();
+    }
+
+    @Test
+    void rebuildsWhenAConcurrentCompletionMovesTheStreakFirst() {
+        complete(TODAY.minusDays(2));
+        interleaveOnNextRead(TODAY);
+
+        complete(TODAY.minusDays(1));
+
+        verify(service, times(1)).rebuild(HABIT);
+        assertMatchesFullRecompute();
+        assertThat(rollup().getCurrentStreak()).isEqualTo(3);
+    }
+
+    @Test
+    void rebuildsWhenAForwardCompletionLandsDuringABackdatedOne() {
+        List.of(4, 3, 1).forEach(daysAgo -> complete(TODAY.minusDays(daysAgo)));
+        interleaveOnNextRead(TODAY);
+
+        complete(TODAY.minusDays(2));
+
+        verify(service, times(1)).rebuild(HABIT);
+        assertMatchesFullRecompute();
+        assertThat(rollup().getCurrentStreak()).isEqualTo(5);
+        assertThat(rollup().getLongestStreak()).isEqualTo(5);
+    }
+
+    @Test
+    void rebuildsAMissingRollup() {
+        List.of(3, 2).forEach(daysAgo -> completionStore.markCompleted(USER, HABIT, TODAY.minusDays(daysAgo)));
+        rollupRepository.deleteById(HABIT);
+
+        complete(TODAY.minusDays(1));
+
+        assertMatchesFullRecompute();
+        assertThat(rollup().getLongestStreak()).isEqualTo(3);
+    }
+
+    @RepeatedTest(10)
+    void matchesAFullRecomputeAfterConcurrentAndBackdatedCompletions() throws Exception {
+        List<LocalDate> days = new ArrayList<>();
+        Random random = new Random(11);
+        for (int daysAgo = 0; daysAgo < 60; daysAgo++) {
+            if (random.nextInt(4) > 0) {
+                days.add(TODAY.minusDays(daysAgo));
+            }
+        }
+        Collections.shuffle(days, random);
+
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> writers = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                List<LocalDate> share = days.subList(days.size() * i / 4, days.size() * (i + 1) / 4);
+                writers.add(pool.submit(() -> {
+                    start.await();
+                    share.forEach(this::complete);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> writer : writers) {
+                writer.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertMatchesFullRecompute();
+    }
+
+    /**
+     * Makes the next rollup read complete {@code day} as another writer would, between the read
+     * and the conditional update of the completion in flight.
+     */
+    private void interleaveOnNextRead(LocalDate day) {
+        doAnswer(invocation -> {
+            Optional<HabitRollup> read = mongo.repository(HabitRollupRepository.class).findById(HABIT);
+            doAnswer(delegatesTo(mongo.repository(HabitRollupRepository.class))).when(rollupRepository).findById(HABIT);
+            complete(day);
+            return read;
+        }).when(rollupRepository).findById(HABIT);
+    }
+
+    private void complete(LocalDate day) {
+        if (completionStore.markCompleted(USER, HABIT, day)) {
+            service.recordCompletion(HABIT, day);
+        }
+    }
+
+    private HabitRollup rollup() {
+        return mongo.repository(HabitRollupRepository.class).findById(HABIT).orElseThrow();
+    }
+
+    private void assertMatchesFullRecompute() {
+        HabitRollup expected = HabitRollupService.fromHistory(HABIT, completionStore.loadHistory(HABIT, null).orElseThrow());
+        assertThat(rollup()).usingRecursiveComparison().isEqualTo(expected);
+    }
+}
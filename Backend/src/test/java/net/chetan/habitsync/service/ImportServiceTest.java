@@ -0,0 +1,245 @@
+package net.chetan.habitsync.service;
+
+import net.chetan.habitsync.dto.ImportDtos.ImportError;
+import net.chetan.habitsync.dto.ImportDtos.ImportResponse;
+import net.chetan.habitsync.model.Habit;
+import net.chetan.habitsync.model.User;
+import net.chetan.habitsync.repository.HabitRepository;
+import net.chetan.habitsync.service.CompletionStore.CompletionEntry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ImportServiceTest {
+
+    private static final LocalDate DAY = LocalDate.of(2025, 3, 1);
+
+    private final HabitRepository habitRepository = mock(HabitRepository.class);
+    private final CompletionStore completionStore = mock(CompletionStore.class);
+    private final HabitRollupService rollupService = mock(HabitRollupService.class);
+    private final DataVersionService dataVersionService = mock(DataVersionService.class);
+    private final StatsRollupService statsRollupService = mock(StatsRollupService.class);
+    private final List<List<CompletionEntry>> batches = new ArrayList<>();
+    private final List<Habit> created = new ArrayList<>();
+    private User user;
+    private ImportService service;
+
+    @BeforeEach
+    void setUp() {
+        user = new User();
+        ReflectionTestUtils.setField(user, "id", "user-1");
+        when(habitRepository.findByUserIdAndArchivedFalse("user-1")).thenReturn(List.of(habit("h-read", "Read")));
+        when(habitRepository.save(any(Habit.class))).thenAnswer(invocation -> {
+            Habit habit = invocation.getArgument(0);
+            ReflectionTestUtils.setField(habit, "id", "new-" + created.size());
+            created.add(habit);
+            return habit;
+        });
+        when(completionStore.applyAll(eq("user-1"), anyList())).thenAnswer(invocation -> {
+            batches.add(List.copyOf(invocation.<List<CompletionEntry>>getArgument(1)));
+            return Set.of();
+        });
+
+        service = new ImportService(habitRepository, completionStore, rollupService, dataVersionService,
+                statsRollupService, JsonMapper.builder().build());
+    }
+
+    @Test
+    void splitsQuotedFieldsWithCommasAndEscapedQuotes() {
+        assertThat(ImportService.splitCsv("\"Read, then write\",2025-03-01,\"say \"\"hi\"\"\",,"))
+                .containsExactly("Read, then write", "2025-03-01", "say \"hi\"", "", "");
+        assertThat(ImportService.splitCsv("plain")).containsExactly("plain");
+    }
+
+    @Test
+    void readsTheCompletedColumnLeniently() {
+        assertThat(ImportService.parseCompleted(null)).isTrue();
+        assertThat(ImportService.parseCompleted(" ")).isTrue();
+        assertThat(ImportService.parseCompleted("TRUE")).isTrue();
+        assertThat(ImportService.parseCompleted(" No ")).isFalse();
+        assertThat(ImportService.parseCompleted("0")).isFalse();
+    }
+
+    @Test
+    void importsCsvMatchingHabitsByNameAndCreatingTheRest() {
+        ImportResponse response = service.importCsv(user, body(
+                "﻿Date, Habit ,Completed",
+                "2025-03-01,read,",
+                "2025-03-02,\"Stretch, then run\",yes",
+                "",
+                "2025-03-03,  READ  ,false"));
+
+        assertThat(response).isEqualTo(new ImportResponse(1, 3, 0, 0, List.of()));
+        assertThat(created).extracting(Habit::getName).containsExactly("Stretch, then run");
+        assertThat(batches).containsExactly(List.of(
+                new CompletionEntry("h-read", DAY, true),
+                new CompletionEntry("new-0", DAY.plusDays(1), true),
+                new CompletionEntry("h-read", DAY.plusDays(2), false)));
+        verify(rollupService).rebuild(Set.of("h-read", "new-0"));
+        verify(statsRollupService).recomputeLater("user-1", List.of("h-read", "new-0"), DAY, DAY.plusDays(2));
+        verify(dataVersionService).bump("user-1");
+    }
+
+    @Test
+    void skipsAndReportsBadCsvRows() {
+        ImportResponse response = service.importCsv(user, body(
+                "habit,date",
+                "Read",
+                "Read,yesterday",
+                ",2025-03-01",
+                "Read," + LocalDate.now().plusDays(1),
+                "Read,2025-03-01"));
+
+        assertThat(response.completionsImported()).isEqualTo(1);
+        assertThat(response.skippedLines()).isEqualTo(4);
+        assertThat(response.errors()).containsExactly(
+                new ImportError(2, "Missing columns"),
+                new ImportError(3, "Invalid date"),
+                new ImportError(4, "Missing habit"),
+                new ImportError(5, "Date in the future"));
+    }
+
+    @Test
+    void rejectsACsvHeaderWithoutHabitAndDate() {
+        ImportResponse response = service.importCsv(user, body("name,day", "Read,2025-03-01"));
+
+        assertThat(response.errors()).containsExactly(new ImportError(1, "Header must name a habit and a date column"));
+        verify(completionStore, never()).applyAll(any(), anyList());
+        verify(dataVersionService, never()).bump(any());
+    }
+
+    @Test
+    void keepsTheLastOfDuplicateRowsInABatch() {
+        ImportResponse response = service.importCsv(user, body(
+                "habit,date,completed",
+                "Read,2025-03-01,true",
+                "Read,2025-03-02,true",
+                "read,2025-03-01,false"));
+
+        assertThat(response.completionsImported()).isEqualTo(2);
+        assertThat(batches).containsExactly(List.of(
+                new CompletionEntry("h-read", DAY, false),
+                new CompletionEntry("h-read", DAY.plusDays(1), true)));
+    }
+
+    @Test
+    void writesAFullBatchWithoutAnEmptyTrailingOne() {
+        ImportResponse response = service.importCsv(user, csvOfDays(ImportService.BATCH_SIZE));
+
+        assertThat(response.completionsImported()).isEqualTo(ImportService.BATCH_SIZE);
+        assertThat(batches).hasSize(1);
+        assertThat(batches.get(0)).hasSize(ImportService.BATCH_SIZE);
+    }
+
+    @Test
+    void startsANewBatchPastTheBatchSize() {
+        ImportResponse response = service.importCsv(user, csvOfDays(ImportService.BATCH_SIZE + 1));
+
+        assertThat(response.completionsImported()).isEqualTo(ImportService.BATCH_SIZE + 1);
+        assertThat(batches).extracting(List::size).containsExactly(ImportService.BATCH_SIZE, 1);
+        assertThat(batches.get(1).get(0).date()).isEqualTo(DAY.minusDays(ImportService.BATCH_SIZE));
+    }
+
+    @Test
+    void countsCompletionsTheStoreRejects() {
+        when(completionStore.applyAll(eq("user-1"), anyList())).thenReturn(Set.of(1));
+
+        ImportResponse response = service.importCsv(user, body("habit,date", "Read,2025-03-01", "Read,2025-03-02"));
+
+        assertThat(response.completionsImported()).isEqualTo(1);
+        assertThat(response.failed()).isEqualTo(1);
+    }
+
+    @Test
+    void importsAnExportFileMappingSourceIds() {
+        ImportResponse response = service.importNdjson(user, body(
+                "{\"type\":\"user\",\"id\":\"u-old\",\"name\":\"Me\"}",
+                "{\"type\":\"habit\",\"id\":\"old-read\",\"name\":\"read\",\"goalPerWeek\":5,\"archived\":false}",
+                "{\"type\":\"habit\",\"id\":\"old-swim\",\"name\":\"Swim\",\"frequency\":\"WEEKLY\",\"goalPerWeek\":2,\"archived\":false}",
+                "{\"type\":\"completion\",\"habitId\":\"old-read\",\"date\":\"2025-03-01\"}",
+                "{\"type\":\"completion\",\"habitId\":\"old-swim\",\"date\":\"2025-03-02\"}",
+                "{\"habit\":\"Swim\",\"date\":\"2025-03-03\",\"completed\":false}"));
+
+        assertThat(response).isEqualTo(new ImportResponse(1, 3, 0, 0, List.of()));
+        assertThat(created).singleElement().satisfies(habit -> {
+            assertThat(habit.getName()).isEqualTo("Swim");
+            assertThat(habit.getFrequency()).isEqualTo(Habit.Frequency.WEEKLY);
+            assertThat(habit.getGoalPerWeek()).isEqualTo(2);
+        });
+        assertThat(batches).containsExactly(List.of(
+                new CompletionEntry("h-read", DAY, true),
+                new CompletionEntry("new-0", DAY.plusDays(1), true),
+                new CompletionEntry("new-0", DAY.plusDays(2), false)));
+    }
+
+    @Test
+    void skipsAndReportsBadNdjsonLines() {
+        ImportResponse response = service.importNdjson(user, body(
+                "{not json",
+                "{\"type\":\"streak\"}",
+                "{\"type\":\"habit\",\"name\":\"\",\"goalPerWeek\":7,\"archived\":false}",
+                "{\"type\":\"habit\",\"name\":\"Swim\",\"goalPerWeek\":\"often\",\"archived\":false}",
+                "{\"type\":\"completion\",\"habitId\":\"missing\",\"date\":\"2025-03-01\"}",
+                "{\"habit\":\"Read\",\"date\":\"03/01/2025\"}",
+                "{\"habit\":\"Read\",\"date\":\"2025-03-01\"}"));
+
+        assertThat(response.completionsImported()).isEqualTo(1);
+        assertThat(response.errors()).containsExactly(
+                new ImportError(1, "Invalid JSON"),
+                new ImportError(2, "Unknown record type"),
+                new ImportError(3, "Habit without a name"),
+                new ImportError(4, "Invalid habit"),
+                new ImportError(5, "Unknown habitId"),
+                new ImportError(6, "Invalid date"));
+    }
+
+    @Test
+    void reportsOnlyTheFirstErrors() {
+        List<String> lines = new ArrayList<>(List.of("habit,date"));
+        for (int i = 0; i < ImportService.MAX_REPORTED_ERRORS + 5; i++) {
+            lines.add("Read,not a date");
+        }
+
+        ImportResponse response = service.importCsv(user, body(lines.toArray(String[]::new)));
+
+        assertThat(response.skippedLines()).isEqualTo(ImportService.MAX_REPORTED_ERRORS + 5);
+        assertThat(response.errors()).hasSize(ImportService.MAX_REPORTED_ERRORS);
+    }
+
+    private static ByteArrayInputStream csvOfDays(int days) {
+        StringBuilder csv = new StringBuilder("habit,date\n");
+        for (int i = 0; i < days; i++) {
+            csv.append("Read,").append(DAY.minusDays(i)).append('\n');
+        }
+        return new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static ByteArrayInputStream body(String... lines) {
+        return new ByteArrayInputStream(String.join("\n", lines).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Habit habit(String id, String name) {
+        Habit habit = new Habit();
+        ReflectionTestUtils.setField(habit, "id", id);
+        habit.setUserId("user-1");
+        habit.setName(name);
+        return habit;
+    }
+}
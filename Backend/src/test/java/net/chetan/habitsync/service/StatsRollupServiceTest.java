@@ -0,0 +1,89 @@
+package net.chetan.habitsync.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import net.chetan.habitsync.model.StatsRollup;
+import net.chetan.habitsync.repository.HabitRepository;
+import net.chetan.habitsync.repository.StatsRollupRepository;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class StatsRollupServiceTest {
+
+    private static final LocalDate DAY = LocalDate.of(2026, 3, 4);
+
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final BulkOperations bulk = mock(BulkOperations.class);
+    private final CompletionStore completionStore = mock(CompletionStore.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private StatsRollupService service;
+
+    @BeforeEach
+    void setUp() {
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, StatsRollup.class)).thenReturn(bulk);
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(StatsRollup.class),
+                eq(StatsRollupService.PeriodTotal.class)))
+                .thenReturn(new AggregationResults<>(List.of(), new Document()));
+        DayBitSet days = new DayBitSet(StatsRollupService.coveredStart(DAY), StatsRollupService.coveredEnd(DAY));
+        days.set(DAY);
+        when(completionStore.load(eq("user-1"), anyCollection(), any(), any())).thenReturn(Map.of("h1", days));
+
+        service = new StatsRollupService(mock(StatsRollupRepository.class), mock(HabitRepository.class),
+                completionStore, mongoTemplate, new TaskExecutorAdapter(Runnable::run), meterRegistry);
+    }
+
+    @Test
+    void recomputesTheDayWhenTheIncrementFails() {
+        when(bulk.execute())
+                .thenThrow(new IllegalStateException("primary stepped down"))
+                .thenReturn(null);
+
+        service.recordCompletion("user-1", "h1", DAY);
+
+        verify(completionStore).load("user-1", List.of("h1"),
+                StatsRollupService.coveredStart(DAY), StatsRollupService.coveredEnd(DAY));
+        assertThat(failures("increment")).isEqualTo(1);
+        assertThat(failures("recompute")).isZero();
+    }
+
+    @Test
+    void countsAndSwallowsAFailedFallback() {
+        when(bulk.execute()).thenThrow(new IllegalStateException("primary stepped down"));
+
+        service.recordCompletion("user-1", "h1", DAY);
+
+        assertThat(failures("increment")).isEqualTo(1);
+        assertThat(failures("recompute")).isEqualTo(1);
+    }
+
+    @Test
+    void countsAFailedRecompute() {
+        when(completionStore.load(eq("user-1"), anyCollection(), any(), any()))
+                .thenThrow(new IllegalStateException("timeout"));
+
+        service.recomputeLater("user-1", List.of("h1"), DAY, DAY.plusDays(3));
+
+        assertThat(failures("recompute")).isEqualTo(1);
+    }
+
+    private double failures(String operation) {
+        return meterRegistry.get("habitsync.stats.rollups.failed").tag("operation", operation).counter().count();
+    }
+}
@@ -0,0 +1,182 @@
+package net.chetan.habitsync.service;
+
+import net.chetan.habitsync.InMemoryMongo;
+import net.chetan.habitsync.dto.HabitDtos.HabitResponse;
+import net.chetan.habitsync.dto.SyncDtos.CompletionChange;
+import net.chetan.habitsync.dto.SyncDtos.SyncResponse;
+import net.chetan.habitsync.model.Habit;
+import net.chetan.habitsync.model.HabitCompletion;
+import net.chetan.habitsync.model.User;
+import net.chetan.habitsync.repository.HabitRepository;
+import net.chetan.habitsync.repository.HabitRollupRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+class SyncServiceTest {
+
+    private static final LocalDate TODAY = LocalDate.now();
+
+    private InMemoryMongo mongo;
+    private HabitRepository habitRepository;
+    private CompletionStore completionStore;
+    private SyncService service;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        mongo = InMemoryMongo.start();
+        habitRepository = mongo.repository(HabitRepository.class);
+        completionStore = DocumentCompletionStoreTest.store(mongo, false);
+        HabitRollupService rollupService = new HabitRollupService(mongo.repository(HabitRollupRepository.class),
+                completionStore, mongo.template());
+        service = new SyncService(habitRepository, completionStore, rollupService);
+        user = new User();
+        ReflectionTestUtils.setField(user, "id", "user-1");
+    }
+
+    @AfterEach
+    void tearDown() {
+        mongo.close();
+    }
+
+    @Test
+    void encodesTheCursorAsUrlSafeBase64OfItsVersionAndTime() {
+        Instant at = Instant.parse("2026-01-02T03:04:05.678Z");
+
+        String cursor = SyncService.encodeCursor(at);
+
+        assertThat(cursor).doesNotContain("=", "+", "/");
+        assertThat(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII))
+                .isEqualTo("t1:" + at.toEpochMilli());
+        assertThat(SyncService.decodeCursor(cursor)).isEqualTo(at);
+    }
+
+    @Test
+    void dropsSubMillisecondPrecisionFromTheCursor() {
+        Instant at = Instant.parse("2026-01-02T03:04:05.678912Z");
+
+        assertThat(SyncService.decodeCursor(SyncService.encodeCursor(at))).isEqualTo(at.truncatedTo(ChronoUnit.MILLIS));
+    }
+
+    @Test
+    void treatsMissingAndMalformedCursorsAsAFullSync() {
+        assertThat(SyncService.decodeCursor(null)).isNull();
+        assertThat(SyncService.decodeCursor(" ")).isNull();
+        assertThat(SyncService.decodeCursor("not base64!")).isNull();
+        assertThat(SyncService.decodeCursor(encode("t1:yesterday"))).isNull();
+        assertThat(SyncService.decodeCursor(encode("t1:"))).isNull();
+
+        save(habit("Read", false, Instant.now()));
+
+        SyncResponse response = service.sync(user, "not base64!");
+
+        assertThat(response.full()).isTrue();
+        assertThat(response.habits()).extracting(HabitResponse::name).containsExactly("Read");
+    }
+
+    @Test
+    void treatsACursorOfAnotherVersionAsAFullSync() {
+        long millis = Instant.now().toEpochMilli();
+        assertThat(SyncService.decodeCursor(encode("t0:" + millis))).isNull();
+        assertThat(SyncService.decodeCursor(encode("t2:" + millis))).isNull();
+        assertThat(SyncService.decodeCursor(Long.toString(millis))).isNull();
+
+        save(habit("Read", false, Instant.now().minusSeconds(3600)));
+
+        assertThat(service.sync(user, encode("t0:" + millis)).full()).isTrue();
+    }
+
+    @Test
+    void setsTheNextCursorBackByTheOverlap() {
+        Instant before = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+
+        Instant next = SyncService.decodeCursor(service.sync(user, null).cursor());
+
+        assertThat(next).isBetween(before.minus(SyncService.OVERLAP), Instant.now().minus(SyncService.OVERLAP));
+    }
+
+    @Test
+    void resendsAChangeMadeJustBeforeTheSync() {
+        save(habit("Read", false, Instant.now()));
+
+        SyncResponse full = service.sync(user, null);
+        SyncResponse next = service.sync(user, full.cursor());
+
+        assertThat(full.habits()).extracting(HabitResponse::name).containsExactly("Read");
+        assertThat(next.full()).isFalse();
+        assertThat(next.habits()).extracting(HabitResponse::name).containsExactly("Read");
+    }
+
+    @Test
+    void picksUpChangesStampedInsideTheOverlapButCommittedAfterTheSync() {
+        Habit read = save(habit("Read", false, Instant.now().minusSeconds(3600)));
+        SyncResponse full = service.sync(user, null);
+        Instant cursorAt = SyncService.decodeCursor(full.cursor());
+
+        // stamped between the cursor and the sync that issued it, as a write in flight would be
+        Habit stretch = save(habit("Stretch", false, cursorAt.plusSeconds(4)));
+        Habit swim = save(habit("Swim", true, cursorAt));
+        completionStore.markCompleted(user.getId(), read.getId(), TODAY);
+        stamp(read.getId(), TODAY, cursorAt.plusSeconds(2));
+        // stamped just before the cursor, so the full sync already had it
+        save(habit("Old", false, cursorAt.minusMillis(1)));
+
+        SyncResponse next = service.sync(user, full.cursor());
+
+        assertThat(next.full()).isFalse();
+        assertThat(next.habits()).extracting(HabitResponse::id).containsExactlyInAnyOrder(stretch.getId(), read.getId());
+        assertThat(next.archivedHabitIds()).containsExactly(swim.getId());
+        assertThat(next.completions()).containsExactly(new CompletionChange(read.getId(), TODAY, true));
+    }
+
+    @Test
+    void leavesOutCompletionsWrittenBeforeTheCursor() {
+        Habit read = save(habit("Read", false, Instant.now().minusSeconds(3600)));
+        completionStore.markCompleted(user.getId(), read.getId(), TODAY.minusDays(1));
+        SyncResponse full = service.sync(user, null);
+        stamp(read.getId(), TODAY.minusDays(1), SyncService.decodeCursor(full.cursor()).minusMillis(1));
+
+        SyncResponse next = service.sync(user, full.cursor());
+
+        assertThat(full.completions()).containsExactly(new CompletionChange(read.getId(), TODAY.minusDays(1), true));
+        assertThat(next.completions()).isEmpty();
+        assertThat(next.habits()).isEmpty();
+    }
+
+    private Habit save(Habit habit) {
+        return habitRepository.save(habit);
+    }
+
+    private Habit habit(String name, boolean archived, Instant updatedAt) {
+        Habit habit = new Habit();
+        habit.setUserId(user.getId());
+        habit.setName(name);
+        habit.setFrequency(Habit.Frequency.DAILY);
+        habit.setGoalPerWeek(7);
+        habit.setArchived(archived);
+        habit.setUpdatedAt(updatedAt);
+        return habit;
+    }
+
+    private void stamp(String habitId, LocalDate date, Instant updatedAt) {
+        mongo.template().updateFirst(query(where("habitId").is(habitId).and("date").is(date)),
+                Update.update("updatedAt", updatedAt), HabitCompletion.class);
+    }
+
+    private static String encode(String cursor) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(StandardCharsets.US_ASCII));
+    }
+}